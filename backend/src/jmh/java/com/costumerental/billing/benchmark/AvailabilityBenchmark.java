@@ -0,0 +1,40 @@
+package com.costumerental.billing.benchmark;
+
+import com.costumerental.billing.model.Costume;
+import com.costumerental.billing.model.Rental;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AvailabilityBenchmark {
+    
+    @Param({"10", "1000", "10000"})
+    public int historySize;
+    
+    private Costume costume;
+    
+    @Setup
+    public void setUp() {
+        costume = BenchmarkData.costumeWithHistory(historySize);
+    }
+    
+    @Benchmark
+    public Integer counterAvailableStock() {
+        return costume.getAvailableStock();
+    }
+    
+    // Baseline: the previous implementation that scanned the full rental history
+    @Benchmark
+    public Integer scannedAvailableStock() {
+        long activeRentals = costume.getRentals().stream()
+            .filter(rental -> rental.getStatus() == Rental.RentalStatus.ACTIVE)
+            .count();
+        return Math.max(0, costume.getStockQuantity() - (int) activeRentals);
+    }
+}
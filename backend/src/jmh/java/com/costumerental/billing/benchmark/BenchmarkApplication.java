@@ -0,0 +1,45 @@
+package com.costumerental.billing.benchmark;
+
+import com.costumerental.billing.CostumeRentalBillingApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application against the PostgreSQL database set with -Dbenchmark.db.url, for benchmarks that go
+ * through the services and repositories (or, with startServer, through HTTP). Flyway migrates the database on start; benchmarks
+ * insert rows into it, so point it at a scratch database rather than one with data you want to keep.
+ */
+final class BenchmarkApplication {
+    
+    private BenchmarkApplication() {}
+    
+    static ConfigurableApplicationContext start(String... properties) {
+        return run(WebApplicationType.NONE, properties);
+    }
+    
+    // With the web server on a free port, read back from local.server.port
+    static ConfigurableApplicationContext startServer(String... properties) {
+        return run(WebApplicationType.SERVLET, properties);
+    }
+    
+    // Command-line arguments, so these win over application.properties (builder default properties would not)
+    private static ConfigurableApplicationContext run(WebApplicationType type, String... properties) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + System.getProperty("benchmark.db.url",
+                        "jdbc:postgresql://localhost:5432/costume_rental") + "?reWriteBatchedInserts=true",
+                "--spring.datasource.username=" + System.getProperty("benchmark.db.user", "postgres"),
+                "--spring.datasource.password=" + System.getProperty("benchmark.db.password", "password"),
+                "--logging.level.root=WARN",
+                "--server.port=0"));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(CostumeRentalBillingApplication.class)
+                .web(type)
+                .run(args.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,73 @@
+package com.costumerental.billing.benchmark;
+
+import com.costumerental.billing.model.Costume;
+import com.costumerental.billing.model.Customer;
+import com.costumerental.billing.model.Rental;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkData {
+    
+    private BenchmarkData() {}
+    
+    static Customer customer(long id) {
+        Customer customer = new Customer("Customer " + id, "customer" + id + "@email.com", "555-" + (1000 + id % 9000),
+                                         id + " Main St, City, State");
+        customer.setId(id);
+        return customer;
+    }
+    
+    static Costume costume(long id) {
+        Costume costume = new Costume("Costume " + id, "Benchmark costume with cape and hat", "M", "Horror",
+                                      new BigDecimal("25.00"), new BigDecimal("35.00"), 5);
+        costume.setId(id);
+        return costume;
+    }
+    
+    static Rental rental(long id, Customer customer, Costume costume, Rental.RentalStatus status) {
+        LocalDate rentalDate = LocalDate.of(2026, 10, 1).plusDays(id % 20);
+        Rental rental = new Rental(customer, costume, rentalDate, rentalDate.plusDays(3));
+        rental.setId(id);
+        rental.setStatus(status);
+        if (status == Rental.RentalStatus.RETURNED) {
+            rental.setActualReturnDate(rentalDate.plusDays(3 + id % 3));
+        }
+        return rental;
+    }
+    
+    // A costume with the given number of historical rentals, one in fifty still active
+    static Costume costumeWithHistory(int historySize) {
+        Costume costume = costume(1);
+        Customer customer = customer(1);
+        List<Rental> rentals = new ArrayList<>(historySize);
+        int active = 0;
+        for (int i = 0; i < historySize; i++) {
+            boolean isActive = i % 50 == 0;
+            rentals.add(rental(i + 1, customer, costume, isActive ? Rental.RentalStatus.ACTIVE : Rental.RentalStatus.RETURNED));
+            if (isActive) active++;
+        }
+        costume.setRentals(rentals);
+        costume.setStockQuantity(historySize / 50 + 5);
+        costume.setActiveRentalCount(active);
+        return costume;
+    }
+    
+    static List<Rental> rentals(int size) {
+        List<Rental> rentals = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rentals.add(rental(i + 1, customer(i % 100 + 1), costume(i % 30 + 1), Rental.RentalStatus.ACTIVE));
+        }
+        return rentals;
+    }
+    
+    static List<Costume> costumes(int size) {
+        List<Costume> costumes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            costumes.add(costume(i + 1));
+        }
+        return costumes;
+    }
+}
@@ -0,0 +1,74 @@
+package com.costumerental.billing.benchmark;
+
+import com.costumerental.billing.model.Bill;
+import com.costumerental.billing.model.Rental;
+import com.costumerental.billing.repository.BillRepository;
+import com.costumerental.billing.service.BillingService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BillingBenchmark {
+    
+    private BillingService billingService;
+    
+    private Rental onTimeRental;
+    
+    private Rental lateRental;
+    
+    @Setup
+    public void setUp() {
+        // In-memory BillRepository: insertIfAbsent stores the bill (replacing any earlier one, so every call does
+        // the full insert) and findByRentalId reads it back, as generateBill does after inserting
+        Map<Long, Bill> bills = new HashMap<>();
+        BillRepository billRepository = (BillRepository) Proxy.newProxyInstance(
+                BillRepository.class.getClassLoader(), new Class<?>[] {BillRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "insertIfAbsent" -> {
+                        Bill bill = new Bill();
+                        bill.setTotalAmount((BigDecimal) args[1]);
+                        bill.setLateFee((BigDecimal) args[2]);
+                        bill.setBillDate((LocalDateTime) args[3]);
+                        bill.setDueDate((LocalDateTime) args[4]);
+                        bills.put((Long) args[0], bill);
+                        yield 1;
+                    }
+                    case "findByRentalId" -> Optional.ofNullable(bills.get((Long) args[0]));
+                    case "save" -> args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        billingService = new BillingService();
+        Field field = ReflectionUtils.findField(BillingService.class, "billRepository");
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, billingService, billRepository);
+        
+        onTimeRental = BenchmarkData.rental(1, BenchmarkData.customer(1), BenchmarkData.costume(1), Rental.RentalStatus.RETURNED);
+        onTimeRental.setActualReturnDate(onTimeRental.getExpectedReturnDate());
+        lateRental = BenchmarkData.rental(2, BenchmarkData.customer(1), BenchmarkData.costume(1), Rental.RentalStatus.RETURNED);
+        lateRental.setActualReturnDate(lateRental.getExpectedReturnDate().plusDays(4));
+    }
+    
+    @Benchmark
+    public Bill generateBillOnTime() {
+        return billingService.generateBill(onTimeRental);
+    }
+    
+    @Benchmark
+    public Bill generateBillWithLateFee() {
+        return billingService.generateBill(lateRental);
+    }
+}
@@ -0,0 +1,87 @@
+package com.costumerental.billing.benchmark;
+
+import com.costumerental.billing.dto.BulkRentalLine;
+import com.costumerental.billing.dto.BulkRentalResult;
+import com.costumerental.billing.model.Costume;
+import com.costumerental.billing.model.Customer;
+import com.costumerental.billing.repository.CostumeRepository;
+import com.costumerental.billing.repository.CustomerRepository;
+import com.costumerental.billing.service.RentalService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rentals created per second through POST /rentals/batch (one createRentals call per batch) against the same
+ * rentals created one createRental call each, through the services on the benchmark database. Each operation
+ * creates batchSize rentals, so rentals/sec = ops/sec x batchSize.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkRentalBenchmark {
+    
+    private static final int COSTUMES = 20;
+    
+    @Param({"10", "100"})
+    public int batchSize;
+    
+    private ConfigurableApplicationContext context;
+    
+    private RentalService rentalService;
+    
+    private List<BulkRentalLine> lines;
+    
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        rentalService = context.getBean(RentalService.class);
+        CustomerRepository customerRepository = context.getBean(CustomerRepository.class);
+        CostumeRepository costumeRepository = context.getBean(CostumeRepository.class);
+        
+        // Enough stock that no line is ever rejected during the run
+        List<Customer> customers = new ArrayList<>();
+        List<Costume> costumes = new ArrayList<>();
+        for (int i = 0; i < COSTUMES; i++) {
+            customers.add(new Customer("Bulk " + i, "bulk-" + System.nanoTime() + "-" + i + "@example.com", "555-0200", "3 Bench St"));
+            costumes.add(new Costume("Bulk costume " + i, "Bulk rental benchmark", "M", "Benchmark",
+                                     new BigDecimal("20.00"), new BigDecimal("30.00"), 10_000_000));
+        }
+        customers = customerRepository.saveAll(customers);
+        costumes = costumeRepository.saveAll(costumes);
+        
+        LocalDate today = LocalDate.now();
+        lines = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            lines.add(new BulkRentalLine(customers.get(i % COSTUMES).getId(), costumes.get(i % COSTUMES).getId(),
+                                         today, today.plusDays(3), null));
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public List<BulkRentalResult> batchCreate() {
+        return rentalService.createRentals(lines, true);
+    }
+    
+    @Benchmark
+    public void singleCreates(Blackhole blackhole) {
+        for (BulkRentalLine line : lines) {
+            blackhole.consume(rentalService.createRental(line.getCustomerId(), line.getCostumeId(), line.getRentalDate(),
+                                                         line.getExpectedReturnDate(), null, true));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.costumerental.billing.benchmark;
+
+import com.costumerental.billing.service.BookingCalendar;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares "most units booked on any day in a range" from the in-memory BookingCalendar with the
+ * equivalent SQL overlap query, both over the same costume's rentals in a local PostgreSQL database
+ * (set with -Dbenchmark.db.url, like SearchQueryBenchmark).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CalendarAvailabilityBenchmark {
+    
+    private static final String BOOKINGS_SQL = "SELECT rental_date, expected_return_date, status FROM rentals " +
+            "WHERE costume_id = ? AND status IN ('RESERVED', 'ACTIVE', 'OVERDUE')";
+    
+    private static final String PEAK_SQL = "SELECT COALESCE(MAX(booked), 0) FROM (" +
+            "SELECT d.day, COUNT(r.id) AS booked FROM generate_series(?::date, ?::date, interval '1 day') AS d(day) " +
+            "JOIN rentals r ON r.costume_id = ? AND r.status IN ('RESERVED', 'ACTIVE', 'OVERDUE') " +
+            "AND r.rental_date <= d.day AND (r.status = 'OVERDUE' OR r.expected_return_date >= d.day) " +
+            "GROUP BY d.day) t";
+    
+    @Param({"1"})
+    public long costumeId;
+    
+    @Param({"7", "90"})
+    public int rangeDays;
+    
+    private Connection connection;
+    
+    private BookingCalendar calendar;
+    
+    private LocalDate from;
+    
+    private LocalDate to;
+    
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.db.url", "jdbc:postgresql://localhost:5432/costume_rental"),
+                System.getProperty("benchmark.db.user", "postgres"),
+                System.getProperty("benchmark.db.password", "password"));
+        from = LocalDate.now();
+        to = from.plusDays(rangeDays - 1);
+        
+        calendar = new BookingCalendar();
+        try (PreparedStatement statement = connection.prepareStatement(BOOKINGS_SQL)) {
+            statement.setLong(1, costumeId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    int start = BookingCalendar.day(resultSet.getDate(1).toLocalDate());
+                    int end = "OVERDUE".equals(resultSet.getString(3)) ? BookingCalendar.day(LocalDate.MAX) :
+                              Math.max(start, BookingCalendar.day(resultSet.getDate(2).toLocalDate()));
+                    calendar.add(start, end, 1);
+                }
+            }
+        }
+    }
+    
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+    
+    @Benchmark
+    public int calendarPeak() {
+        return calendar.peak(BookingCalendar.day(from), BookingCalendar.day(to));
+    }
+    
+    @Benchmark
+    public int sqlOverlapPeak() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(PEAK_SQL)) {
+            statement.setDate(1, Date.valueOf(from));
+            statement.setDate(2, Date.valueOf(to));
+            statement.setLong(3, costumeId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.costumerental.billing.benchmark;
+
+import com.costumerental.billing.dto.BulkRentalLine;
+import com.costumerental.billing.model.Costume;
+import com.costumerental.billing.model.Customer;
+import com.costumerental.billing.model.Rental;
+import com.costumerental.billing.repository.CostumeRepository;
+import com.costumerental.billing.repository.CustomerRepository;
+import com.costumerental.billing.service.BillingOutboxWorker;
+import com.costumerental.billing.service.RentalService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout with billing through the outbox: checkout is the latency of POST /rentals with generateBill (the rental
+ * and its outbox event in one transaction, no bill yet), billOutbox the bills per second BillingOutboxWorker
+ * creates when it drains 200 queued events. The scheduled worker is slowed to a daily poll so that it does not
+ * bill events behind the benchmark's back.
+ */
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CheckoutBenchmark {
+    
+    static final int OUTBOX_EVENTS = 200;
+    
+    private ConfigurableApplicationContext context;
+    
+    private RentalService rentalService;
+    
+    private BillingOutboxWorker outboxWorker;
+    
+    private Long customerId;
+    
+    private Long costumeId;
+    
+    private List<BulkRentalLine> lines;
+    
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start("rental.billing.outbox-poll-ms=86400000");
+        rentalService = context.getBean(RentalService.class);
+        outboxWorker = context.getBean(BillingOutboxWorker.class);
+        Customer customer = context.getBean(CustomerRepository.class).save(
+                new Customer("Checkout", "checkout-" + System.nanoTime() + "@example.com", "555-0400", "4 Bench St"));
+        Costume costume = context.getBean(CostumeRepository.class).save(
+                new Costume("Checkout costume", "Checkout benchmark", "M", "Benchmark",
+                            new BigDecimal("20.00"), new BigDecimal("30.00"), 10_000_000));
+        customerId = customer.getId();
+        costumeId = costume.getId();
+        
+        LocalDate today = LocalDate.now();
+        lines = new ArrayList<>(OUTBOX_EVENTS);
+        for (int i = 0; i < OUTBOX_EVENTS; i++) {
+            lines.add(new BulkRentalLine(customerId, costumeId, today, today.plusDays(3), null));
+        }
+        // Events left over from earlier runs would inflate the first drain
+        outboxWorker.drain();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+    
+    // Queues a fresh batch of rentals and outbox events before every billOutbox call, outside the measurement
+    @State(Scope.Thread)
+    public static class QueuedEvents {
+        
+        @Setup(Level.Invocation)
+        public void queue(CheckoutBenchmark benchmark) {
+            benchmark.rentalService.createRentals(benchmark.lines, true);
+        }
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Rental checkout() {
+        LocalDate today = LocalDate.now();
+        return rentalService.createRental(customerId, costumeId, today, today.plusDays(3), null, true);
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(OUTBOX_EVENTS)
+    public void billOutbox(QueuedEvents queued) {
+        outboxWorker.drain();
+    }
+}
@@ -0,0 +1,87 @@
+package com.costumerental.billing.benchmark;
+
+import com.costumerental.billing.model.Customer;
+import com.costumerental.billing.repository.CustomerRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The 1k-client load test: each operation sends 1000 GET /customers/{id}/summary requests at once over separate
+ * connections and waits for all of them, on Tomcat's platform-thread pool (threads=platform) or with the
+ * virtual-threads profile (threads=virtual). Scores are requests per second. The virtual case needs the forked
+ * JVM to be Java 21+, e.g. -Djmh.args="ConcurrentClients -jvm /path/to/jdk-21/bin/java"; on Java 17 the
+ * application refuses to start with that profile. Failed or non-200 responses are counted and printed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@OperationsPerInvocation(ConcurrentClientsBenchmark.CLIENTS)
+@State(Scope.Benchmark)
+public class ConcurrentClientsBenchmark {
+    
+    static final int CLIENTS = 1000;
+    
+    @Param({"platform", "virtual"})
+    public String threads;
+    
+    private ConfigurableApplicationContext context;
+    
+    private HttpClient client;
+    
+    private List<URI> uris;
+    
+    private final AtomicInteger failures = new AtomicInteger();
+    
+    @Setup
+    public void setUp() {
+        context = "virtual".equals(threads) ?
+                  BenchmarkApplication.startServer("spring.profiles.active=virtual-threads") :
+                  BenchmarkApplication.startServer();
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/customers/";
+        List<Customer> customers = context.getBean(CustomerRepository.class).findAll(PageRequest.of(0, CLIENTS)).getContent();
+        uris = new ArrayList<>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            uris.add(URI.create(base + customers.get(i % customers.size()).getId() + "/summary"));
+        }
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        System.out.println("threads=" + threads + ": " + failures.get() + " failed requests");
+        context.close();
+    }
+    
+    @Benchmark
+    public void thousandClients() {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            HttpRequest request = HttpRequest.newBuilder(uris.get(i)).timeout(Duration.ofSeconds(60)).GET().build();
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        if (error != null || response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                        }
+                        return null;
+                    });
+        }
+        CompletableFuture.allOf(responses).join();
+    }
+}
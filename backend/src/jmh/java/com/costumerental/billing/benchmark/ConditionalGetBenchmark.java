@@ -0,0 +1,119 @@
+package com.costumerental.billing.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The frontend's polling workload: GET /costumes, /costumes/available and /rentals/active with gzip, as a browser
+ * sends them, once as a full download (fullPoll) and once revalidating with If-None-Match (conditionalPoll, a 304).
+ * Scores are sampled latencies; tearDown prints the bytes each kind of poll puts on the wire. The setup adds a
+ * catalog of 1000 costumes and 200 active rentals, so run it against a scratch database of about that size, since
+ * /costumes returns every costume.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConditionalGetBenchmark {
+    
+    private static final int COSTUMES = 1000;
+    
+    private static final int ACTIVE_RENTALS = 200;
+    
+    // Far above the ids the sequences hand out in the benchmark database
+    private static final long FIRST_ID = 3_000_000_000L;
+    
+    @Param({"/costumes", "/costumes/available", "/rentals/active"})
+    public String path;
+    
+    private ConfigurableApplicationContext context;
+    
+    private JdbcTemplate jdbcTemplate;
+    
+    private HttpClient client;
+    
+    private HttpRequest fullRequest;
+    
+    private HttpRequest conditionalRequest;
+    
+    private long fullBytes;
+    
+    private long notModifiedBytes;
+    
+    @Setup
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.startServer();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        deleteRows();
+        jdbcTemplate.update("INSERT INTO customers (id, first_name, email) VALUES (?, 'Poll', ?)",
+                            FIRST_ID, "poll-" + FIRST_ID + "@example.com");
+        jdbcTemplate.update("INSERT INTO costumes (id, name, description, size, category, sell_price, original_price, available, stock_quantity) " +
+                            "SELECT ? + n, 'Poll costume ' || n, 'Costume for the polling benchmark', " +
+                            "(ARRAY['S', 'M', 'L', 'XL'])[n % 4 + 1], 'Category ' || n % 12, 20, 30, n % 5 <> 0, 10 " +
+                            "FROM generate_series(0, ?) n",
+                            FIRST_ID, COSTUMES - 1);
+        jdbcTemplate.update("INSERT INTO rentals (id, customer_id, costume_id, rental_date, expected_return_date, status) " +
+                            "SELECT ? + n, ?, ? + n, CURRENT_DATE - 2, CURRENT_DATE + 5, 'ACTIVE' FROM generate_series(0, ?) n",
+                            FIRST_ID, FIRST_ID, FIRST_ID, ACTIVE_RENTALS - 1);
+        
+        URI uri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api" + path);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        fullRequest = HttpRequest.newBuilder(uri).header("Accept-Encoding", "gzip").GET().build();
+        HttpResponse<byte[]> full = client.send(fullRequest, HttpResponse.BodyHandlers.ofByteArray());
+        String etag = full.headers().firstValue("ETag").orElseThrow(() -> new IllegalStateException("No ETag on " + path));
+        conditionalRequest = HttpRequest.newBuilder(uri).header("Accept-Encoding", "gzip").header("If-None-Match", etag).GET().build();
+        HttpResponse<byte[]> notModified = client.send(conditionalRequest, HttpResponse.BodyHandlers.ofByteArray());
+        if (notModified.statusCode() != 304) {
+            throw new IllegalStateException(path + " answered " + notModified.statusCode() + " to If-None-Match");
+        }
+        fullBytes = headerBytes(full.headers()) + full.body().length;
+        notModifiedBytes = headerBytes(notModified.headers()) + notModified.body().length;
+    }
+    
+    @TearDown
+    public void tearDown() {
+        System.out.println(path + ": full poll " + fullBytes + " bytes, 304 poll " + notModifiedBytes + " bytes, "
+                           + (fullBytes - notModifiedBytes) + " bytes saved per unchanged poll");
+        deleteRows();
+        context.close();
+    }
+    
+    private void deleteRows() {
+        jdbcTemplate.update("DELETE FROM rentals WHERE id >= ?", FIRST_ID);
+        jdbcTemplate.update("DELETE FROM costumes WHERE id >= ?", FIRST_ID);
+        jdbcTemplate.update("DELETE FROM customers WHERE id >= ?", FIRST_ID);
+    }
+    
+    // Response headers as they appear on the wire ("Name: value\r\n"), plus the status line
+    private static long headerBytes(HttpHeaders headers) {
+        long bytes = "HTTP/1.1 200 \r\n\r\n".length();
+        for (Map.Entry<String, List<String>> header : headers.map().entrySet()) {
+            for (String value : header.getValue()) {
+                bytes += header.getKey().length() + 2 + value.length() + 2;
+            }
+        }
+        return bytes;
+    }
+    
+    @Benchmark
+    public int fullPoll() throws Exception {
+        return client.send(fullRequest, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+    }
+    
+    @Benchmark
+    public int conditionalPoll() throws Exception {
+        return client.send(conditionalRequest, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,115 @@
+package com.costumerental.billing.benchmark;
+
+import com.costumerental.billing.dto.CustomerSummary;
+import com.costumerental.billing.service.CustomerSummaryService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the checkout summary (GET /customers/{id}/summary, target p99 under 10 ms), through the service
+ * (summary: the query plan alone) and over HTTP (httpSummary: plus ETag check, serialization and gzip). Setup adds
+ * 100 customers with 50 rentals each on the benchmark database, three of them still out and one overdue, all billed;
+ * each operation asks for the next customer. Read the p0.99 rows of the sampled results.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerSummaryBenchmark {
+    
+    private static final int CUSTOMERS = 100;
+    
+    private static final int RENTALS_PER_CUSTOMER = 50;
+    
+    // Far above the ids the sequences hand out in the benchmark database
+    private static final long FIRST_ID = 3_000_000_000L;
+    
+    private ConfigurableApplicationContext context;
+    
+    private JdbcTemplate jdbcTemplate;
+    
+    private CustomerSummaryService summaryService;
+    
+    private HttpClient client;
+    
+    private URI[] uris;
+    
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.startServer();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        summaryService = context.getBean(CustomerSummaryService.class);
+        deleteRows();
+        
+        jdbcTemplate.update("INSERT INTO customers (id, first_name, email) " +
+                            "SELECT ? + n, 'Summary ' || n, 'summary-' || n || '@example.com' FROM generate_series(0, ?) n",
+                            FIRST_ID, CUSTOMERS - 1);
+        jdbcTemplate.update("INSERT INTO costumes (id, name, size, category, sell_price, original_price, available, stock_quantity) " +
+                            "SELECT ? + n, 'Summary costume ' || n, 'M', 'Benchmark', 20, 30, true, 1000 FROM generate_series(0, 49) n",
+                            FIRST_ID);
+        // Rentals k = 0..49 per customer, newest last: returned ones a week apart, then three out, the first of them overdue
+        jdbcTemplate.update("INSERT INTO rentals (id, customer_id, costume_id, rental_date, expected_return_date, actual_return_date, status) " +
+                            "SELECT ? + n, ? + n / ?, ? + n % 50, rental_date, rental_date + 5, " +
+                            "CASE WHEN status = 'RETURNED' THEN rental_date + 4 END, status FROM (" +
+                            "SELECT n, CURRENT_DATE - 7 * (? - n % ?) AS rental_date, " +
+                            "CASE WHEN n % ? = ? - 3 THEN 'OVERDUE' WHEN n % ? >= ? - 2 THEN 'ACTIVE' ELSE 'RETURNED' END AS status " +
+                            "FROM generate_series(0, ?) n) r",
+                            FIRST_ID, FIRST_ID, RENTALS_PER_CUSTOMER, FIRST_ID,
+                            RENTALS_PER_CUSTOMER, RENTALS_PER_CUSTOMER,
+                            RENTALS_PER_CUSTOMER, RENTALS_PER_CUSTOMER, RENTALS_PER_CUSTOMER, RENTALS_PER_CUSTOMER,
+                            CUSTOMERS * RENTALS_PER_CUSTOMER - 1);
+        jdbcTemplate.update("INSERT INTO bills (id, rental_id, total_amount, bill_date, due_date, paid_date, status) " +
+                            "SELECT id, id, 100, rental_date, expected_return_date, " +
+                            "CASE WHEN status = 'RETURNED' THEN actual_return_date + TIME '12:00' END, " +
+                            "CASE WHEN status = 'RETURNED' THEN 'PAID' WHEN status = 'OVERDUE' THEN 'OVERDUE' ELSE 'PENDING' END " +
+                            "FROM rentals WHERE id >= ?",
+                            FIRST_ID);
+        jdbcTemplate.execute("ANALYZE rentals");
+        jdbcTemplate.execute("ANALYZE bills");
+        
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/customers/";
+        uris = new URI[CUSTOMERS];
+        for (int i = 0; i < CUSTOMERS; i++) {
+            uris[i] = URI.create(base + (FIRST_ID + i) + "/summary");
+        }
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        deleteRows();
+        context.close();
+    }
+    
+    private void deleteRows() {
+        jdbcTemplate.update("DELETE FROM bills WHERE rental_id >= ?", FIRST_ID);
+        jdbcTemplate.update("DELETE FROM rentals WHERE id >= ?", FIRST_ID);
+        jdbcTemplate.update("DELETE FROM costumes WHERE id >= ?", FIRST_ID);
+        jdbcTemplate.update("DELETE FROM customers WHERE id >= ?", FIRST_ID);
+    }
+    
+    @Benchmark
+    public Optional<CustomerSummary> summary() {
+        next = (next + 1) % CUSTOMERS;
+        return summaryService.getSummary(FIRST_ID + next, CustomerSummaryService.DEFAULT_HISTORY);
+    }
+    
+    @Benchmark
+    public int httpSummary() throws Exception {
+        next = (next + 1) % CUSTOMERS;
+        HttpRequest request = HttpRequest.newBuilder(uris[next]).header("Accept-Encoding", "gzip").GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+    }
+}
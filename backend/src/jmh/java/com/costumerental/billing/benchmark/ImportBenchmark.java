@@ -0,0 +1,66 @@
+package com.costumerental.billing.benchmark;
+
+import com.costumerental.billing.dto.ImportResult;
+import com.costumerental.billing.service.ImportService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second through the CSV import pipeline (POST /costumes/import): parsing and validation on the calling
+ * thread, chunked saveAll on the shared writer pool. The target is 50,000 rows/s. concurrentImports runs four imports
+ * at once to show how they share the bounded writer pool.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@OperationsPerInvocation(ImportBenchmark.ROWS)
+@State(Scope.Benchmark)
+public class ImportBenchmark {
+    
+    static final int ROWS = 10_000;
+    
+    private ConfigurableApplicationContext context;
+    
+    private ImportService importService;
+    
+    private byte[] csv;
+    
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        importService = context.getBean(ImportService.class);
+        StringBuilder builder = new StringBuilder("name,description,size,category,sellPrice,originalPrice,stockQuantity\n");
+        for (int i = 0; i < ROWS; i++) {
+            builder.append("Import costume ").append(i).append(",\"Imported, row ").append(i).append("\",M,Benchmark,")
+                    .append(20 + i % 50).append(".00,").append(30 + i % 50).append(".00,").append(1 + i % 5).append('\n');
+        }
+        csv = builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public ImportResult importCostumes() throws IOException {
+        ImportResult result = importService.importCostumes(new ByteArrayInputStream(csv));
+        if (result.getImported() != ROWS) {
+            throw new IllegalStateException("Imported " + result.getImported() + " of " + ROWS + " rows");
+        }
+        return result;
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public ImportResult concurrentImports() throws IOException {
+        return importCostumes();
+    }
+}
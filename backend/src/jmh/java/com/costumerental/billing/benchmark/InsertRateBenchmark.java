@@ -0,0 +1,99 @@
+package com.costumerental.billing.benchmark;
+
+import com.costumerental.billing.model.Customer;
+import com.costumerental.billing.repository.CustomerRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Insert rate with pooled sequence ids: saveAll of a chunk of customers in one transaction, which Hibernate sends as
+ * JDBC batches (rewritten to multi-row INSERTs), against the one INSERT ... RETURNING id round trip per row that
+ * IDENTITY ids forced. Scores are rows inserted per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@OperationsPerInvocation(InsertRateBenchmark.ROWS)
+@State(Scope.Benchmark)
+public class InsertRateBenchmark {
+    
+    private static final String IDENTITY_STYLE_INSERT =
+            "INSERT INTO customers (first_name, email, phone, address) VALUES (?, ?, ?, ?) RETURNING id";
+    
+    static final int ROWS = 1000;
+    
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    
+    private ConfigurableApplicationContext context;
+    
+    private CustomerRepository customerRepository;
+    
+    private TransactionTemplate transactionTemplate;
+    
+    private DataSource dataSource;
+    
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        customerRepository = context.getBean(CustomerRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        dataSource = context.getBean(DataSource.class);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public List<Customer> pooledSequenceSaveAll() {
+        List<Customer> customers = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            customers.add(customer());
+        }
+        return transactionTemplate.execute(status -> customerRepository.saveAll(customers));
+    }
+    
+    // Baseline: what IDENTITY ids forced, one statement and round trip per row to learn its id
+    @Benchmark
+    public long identityStyleRowByRow() throws SQLException {
+        long lastId = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(IDENTITY_STYLE_INSERT)) {
+                for (int i = 0; i < ROWS; i++) {
+                    Customer customer = customer();
+                    statement.setString(1, customer.getFirstName());
+                    statement.setString(2, customer.getEmail());
+                    statement.setString(3, customer.getPhone());
+                    statement.setString(4, customer.getAddress());
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        resultSet.next();
+                        lastId = resultSet.getLong(1);
+                    }
+                }
+            }
+            connection.commit();
+        }
+        return lastId;
+    }
+    
+    private static Customer customer() {
+        long n = SEQUENCE.incrementAndGet();
+        return new Customer("Insert " + n, "insert-" + System.nanoTime() + "-" + n + "@example.com", "555-0300", n + " Bench St");
+    }
+}
@@ -0,0 +1,105 @@
+package com.costumerental.billing.benchmark;
+
+import com.costumerental.billing.service.CostumeAvailabilityIndex;
+import com.costumerental.billing.service.OverdueSweepJob;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The overdue sweep over 1M rentals on the benchmark database: three years of returned rentals plus 50k active ones,
+ * about 24k of which are past their return date. fullSweep is a first sweep without watermarks, run after every
+ * overdue rental has been put back to ACTIVE and the availability index reloaded; incrementalSweep is a sweep right
+ * after another, which is what the scheduled sweep costs in steady state. The rows are removed again in tearDown.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OverdueSweepBenchmark {
+    
+    static final int RENTALS = 1_000_000;
+    
+    private static final int COSTUMES = 100;
+    
+    // Far above the ids the sequences hand out in the benchmark database
+    private static final long FIRST_ID = 3_000_000_000L;
+    
+    private ConfigurableApplicationContext context;
+    
+    private JdbcTemplate jdbcTemplate;
+    
+    private OverdueSweepJob sweepJob;
+    
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start("rental.overdue.sweep-interval-ms=86400000");
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        sweepJob = context.getBean(OverdueSweepJob.class);
+        deleteRows();
+        
+        jdbcTemplate.update("INSERT INTO customers (id, first_name, email) VALUES (?, 'Sweep', ?)",
+                            FIRST_ID, "sweep-" + FIRST_ID + "@example.com");
+        jdbcTemplate.update("INSERT INTO costumes (id, name, size, category, sell_price, original_price, available, stock_quantity) " +
+                            "SELECT ? + n, 'Sweep costume ' || n, 'M', 'Benchmark', 20, 30, true, 100000 FROM generate_series(0, ?) n",
+                            FIRST_ID, COSTUMES - 1);
+        // One in twenty rentals is still out, started over the last three weeks with a ten-day rental period
+        jdbcTemplate.update("INSERT INTO rentals (id, customer_id, costume_id, rental_date, expected_return_date, status) " +
+                            "SELECT ? + n, ?, ? + n % ?, rental_date, rental_date + 10, status FROM (" +
+                            "SELECT n, CASE WHEN n % 20 = 0 THEN CURRENT_DATE - 20 + (n / 20) % 21 " +
+                            "ELSE CURRENT_DATE - 1100 + n % 1075 END AS rental_date, " +
+                            "CASE WHEN n % 20 = 0 THEN 'ACTIVE' ELSE 'RETURNED' END AS status " +
+                            "FROM generate_series(0, ?) n) r",
+                            FIRST_ID, FIRST_ID, FIRST_ID, COSTUMES, RENTALS - 1);
+        jdbcTemplate.execute("ANALYZE rentals");
+        
+        // The startup sweep already moved the watermark to today, so this one only brings the new rows up to date
+        sweepJob.sweep();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        deleteRows();
+        context.close();
+    }
+    
+    private void deleteRows() {
+        jdbcTemplate.update("DELETE FROM rentals WHERE id >= ?", FIRST_ID);
+        jdbcTemplate.update("DELETE FROM costumes WHERE id >= ?", FIRST_ID);
+        jdbcTemplate.update("DELETE FROM customers WHERE id >= ?", FIRST_ID);
+    }
+    
+    // A sweep job with no watermarks, over rentals that are all ACTIVE again, before every fullSweep
+    @State(Scope.Thread)
+    public static class FirstSweep {
+        
+        private OverdueSweepJob job;
+        
+        @Setup(Level.Iteration)
+        public void reset(OverdueSweepBenchmark benchmark) {
+            benchmark.jdbcTemplate.update("UPDATE rentals SET status = 'ACTIVE', accrued_late_fee = 0 " +
+                                          "WHERE id >= ? AND status = 'OVERDUE'", FIRST_ID);
+            benchmark.context.getBean(CostumeAvailabilityIndex.class).rebuild();
+            // autowireBean injects the dependencies without registering another @Scheduled task
+            job = new OverdueSweepJob();
+            benchmark.context.getAutowireCapableBeanFactory().autowireBean(job);
+        }
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public void fullSweep(FirstSweep firstSweep) {
+        firstSweep.job.sweep();
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 2, time = 5)
+    @Measurement(iterations = 3, time = 5)
+    public void incrementalSweep() {
+        sweepJob.sweep();
+    }
+}
@@ -0,0 +1,96 @@
+package com.costumerental.billing.benchmark;
+
+import com.costumerental.billing.repository.CostumeRepository;
+import com.costumerental.billing.repository.CustomerRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the costume and customer search SQL against a local PostgreSQL database,
+ * set with -Dbenchmark.db.url (user and password default to the application's).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchQueryBenchmark {
+    
+    private static final String COSTUME_LIKE_SQL = "SELECT c.* FROM costumes c WHERE " +
+            "LOWER(c.name) LIKE LOWER(CONCAT('%', ?, '%')) OR " +
+            "LOWER(c.category) LIKE LOWER(CONCAT('%', ?, '%')) OR " +
+            "LOWER(c.description) LIKE LOWER(CONCAT('%', ?, '%'))";
+    
+    private static final String COSTUME_FULL_TEXT_SQL = "SELECT c.* FROM costumes c " +
+            "WHERE " + CostumeRepository.SEARCH_DOCUMENT + " @@ to_tsquery('simple', ?) " +
+            "ORDER BY ts_rank(" + CostumeRepository.SEARCH_DOCUMENT + ", to_tsquery('simple', ?)) DESC, c.id LIMIT 50";
+    
+    private static final String CUSTOMER_LIKE_SQL = "SELECT c.* FROM customers c WHERE " +
+            "LOWER(c.first_name) LIKE LOWER(CONCAT('%', ?, '%')) OR " +
+            "LOWER(c.email) LIKE LOWER(CONCAT('%', ?, '%')) OR " +
+            "LOWER(c.phone) LIKE LOWER(CONCAT('%', ?, '%'))";
+    
+    private static final String CUSTOMER_FULL_TEXT_SQL = "SELECT c.* FROM customers c " +
+            "WHERE " + CustomerRepository.SEARCH_DOCUMENT + " @@ to_tsquery('simple', ?) " +
+            "ORDER BY ts_rank(" + CustomerRepository.SEARCH_DOCUMENT + ", to_tsquery('simple', ?)) DESC, c.id LIMIT 50";
+    
+    @Param({"vamp", "pirate"})
+    public String term;
+    
+    private Connection connection;
+    
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.db.url", "jdbc:postgresql://localhost:5432/costume_rental"),
+                System.getProperty("benchmark.db.user", "postgres"),
+                System.getProperty("benchmark.db.password", "password"));
+    }
+    
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+    
+    @Benchmark
+    public int costumeLikeSearch() throws SQLException {
+        return count(COSTUME_LIKE_SQL, term, term, term);
+    }
+    
+    @Benchmark
+    public int costumeFullTextSearch() throws SQLException {
+        return count(COSTUME_FULL_TEXT_SQL, term + ":*", term + ":*");
+    }
+    
+    @Benchmark
+    public int customerLikeSearch() throws SQLException {
+        return count(CUSTOMER_LIKE_SQL, term, term, term);
+    }
+    
+    @Benchmark
+    public int customerFullTextSearch() throws SQLException {
+        return count(CUSTOMER_FULL_TEXT_SQL, term + ":*", term + ":*");
+    }
+    
+    private int count(String sql, String... params) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                statement.setString(i + 1, params[i]);
+            }
+            int rows = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows++;
+                }
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.costumerental.billing.benchmark;
+
+import com.costumerental.billing.config.WebConfig;
+import com.costumerental.billing.dto.Views;
+import com.costumerental.billing.model.Costume;
+import com.costumerental.billing.model.Rental;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    
+    @Param({"100", "1000"})
+    public int listSize;
+    
+    private ObjectWriter writer;
+    
+    private ObjectWriter compactWriter;
+    
+    private List<Rental> rentals;
+    
+    private List<Costume> costumes;
+    
+    @Setup
+    public void setUp() throws IOException {
+        // Same ObjectMapper the REST message converter uses
+        ObjectMapper mapper = new WebConfig().objectMapper();
+        writer = mapper.writer();
+        compactWriter = mapper.writerWithView(Views.Compact.class);
+        rentals = BenchmarkData.rentals(listSize);
+        costumes = BenchmarkData.costumes(listSize);
+        
+        // Payload sizes for the report; timings come from the benchmarks below
+        reportSize("rentals", writer.writeValueAsBytes(rentals), compactWriter.writeValueAsBytes(rentals));
+        reportSize("costumes", writer.writeValueAsBytes(costumes), compactWriter.writeValueAsBytes(costumes));
+    }
+    
+    @Benchmark
+    public byte[] serializeRentals() throws Exception {
+        return writer.writeValueAsBytes(rentals);
+    }
+    
+    @Benchmark
+    public byte[] serializeCostumes() throws Exception {
+        return writer.writeValueAsBytes(costumes);
+    }
+    
+    @Benchmark
+    public byte[] serializeRentalsCompact() throws Exception {
+        return compactWriter.writeValueAsBytes(rentals);
+    }
+    
+    @Benchmark
+    public byte[] serializeCostumesCompact() throws Exception {
+        return compactWriter.writeValueAsBytes(costumes);
+    }
+    
+    private void reportSize(String name, byte[] full, byte[] compact) throws IOException {
+        System.out.println(listSize + " " + name + ": full " + full.length + " B (gzip " + gzipped(full) + " B), " +
+                           "compact " + compact.length + " B (gzip " + gzipped(compact) + " B)");
+    }
+    
+    private static int gzipped(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.size();
+    }
+}
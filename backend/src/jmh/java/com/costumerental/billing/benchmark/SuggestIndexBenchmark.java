@@ -0,0 +1,61 @@
+package com.costumerental.billing.benchmark;
+
+import com.costumerental.billing.dto.CustomerSuggestion;
+import com.costumerental.billing.service.CustomerSuggestIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prefix lookups on the in-memory customer suggest index, and its heap footprint: setup prints the retained heap of
+ * the filled index scaled to one million customers (compare with -prof gc for allocation per lookup).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SuggestIndexBenchmark {
+    
+    @Param({"100000", "1000000"})
+    public int customers;
+    
+    private CustomerSuggestIndex index;
+    
+    @Setup
+    public void setUp() {
+        long before = usedHeap();
+        index = new CustomerSuggestIndex();
+        for (long id = 1; id <= customers; id++) {
+            index.put(BenchmarkData.customer(id));
+        }
+        long retained = usedHeap() - before;
+        System.out.printf("%nSuggest index: %d customers retain %.1f MB (%d bytes/customer, %.0f MB per million)%n",
+                          customers, retained / 1e6, retained / customers, retained * (1_000_000.0 / customers) / 1e6);
+    }
+    
+    @Benchmark
+    public List<CustomerSuggestion> suggestByName() {
+        return index.suggest("customer 12", CustomerSuggestIndex.DEFAULT_LIMIT);
+    }
+    
+    @Benchmark
+    public List<CustomerSuggestion> suggestByEmail() {
+        return index.suggest("customer4711", CustomerSuggestIndex.DEFAULT_LIMIT);
+    }
+    
+    @Benchmark
+    public List<CustomerSuggestion> suggestByPhone() {
+        return index.suggest("555-47", CustomerSuggestIndex.DEFAULT_LIMIT);
+    }
+    
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
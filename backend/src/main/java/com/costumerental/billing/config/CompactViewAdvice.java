@@ -0,0 +1,33 @@
+package com.costumerental.billing.config;
+
+import com.costumerental.billing.dto.Views;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+/**
+ * Serializes any JSON response with the Views.Compact view when the request asks for ?view=compact,
+ * so list endpoints can skip descriptions, notes and other detail-only fields.
+ */
+@ControllerAdvice
+public class CompactViewAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    public static final String VIEW_PARAM = "view";
+
+    public static final String COMPACT = "compact";
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request,
+                                           ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest &&
+                COMPACT.equalsIgnoreCase(servletRequest.getServletRequest().getParameter(VIEW_PARAM))) {
+            bodyContainer.setSerializationView(Views.Compact.class);
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Component
 public class DataInitializer implements CommandLineRunner {
@@ -39,11 +40,7 @@ public class DataInitializer implements CommandLineRunner {
         Customer customer4 = new Customer("Alice",  "alice.brown@email.com", "555-3456", "321 Elm St, City, State");
         Customer customer5 = new Customer("Charlie", "charlie.wilson@email.com", "555-7890", "654 Maple Dr, City, State");
 
-        customerRepository.save(customer1);
-        customerRepository.save(customer2);
-        customerRepository.save(customer3);
-        customerRepository.save(customer4);
-        customerRepository.save(customer5);
+        customerRepository.saveAll(List.of(customer1, customer2, customer3, customer4, customer5));
 
         System.out.println("Initialized 5 sample customers");
     }
@@ -66,21 +63,9 @@ public class DataInitializer implements CommandLineRunner {
         Costume costume14 = new Costume("Doctor Outfit", "Professional doctor costume", "M", "Profession", new BigDecimal("25.00"), new BigDecimal("37.00"), 3);
         Costume costume15 = new Costume("Clown Costume", "Colorful clown costume with accessories", "L", "Comedy", new BigDecimal("28.00"), new BigDecimal("42.00"), 1);
 
-        costumeRepository.save(costume1);
-        costumeRepository.save(costume2);
-        costumeRepository.save(costume3);
-        costumeRepository.save(costume4);
-        costumeRepository.save(costume5);
-        costumeRepository.save(costume6);
-        costumeRepository.save(costume7);
-        costumeRepository.save(costume8);
-        costumeRepository.save(costume9);
-        costumeRepository.save(costume10);
-        costumeRepository.save(costume11);
-        costumeRepository.save(costume12);
-        costumeRepository.save(costume13);
-        costumeRepository.save(costume14);
-        costumeRepository.save(costume15);
+        costumeRepository.saveAll(List.of(costume1, costume2, costume3, costume4, costume5,
+                                          costume6, costume7, costume8, costume9, costume10,
+                                          costume11, costume12, costume13, costume14, costume15));
 
         System.out.println("Initialized 15 sample costumes");
     }
@@ -0,0 +1,61 @@
+package com.costumerental.billing.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+
+/**
+ * Read-your-writes on top of replica routing: a mutating request answers with the time
+ * until which the caller should read from the primary, and requests echoing a time still
+ * in the future are pinned to the primary so a counter sees the rental it just booked.
+ */
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String HEADER = "X-Read-Primary-Until";
+
+    private final long windowMillis;
+
+    public ReadYourWritesInterceptor(Duration window) {
+        this.windowMillis = window.toMillis();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        long now = System.currentTimeMillis();
+        if (isWrite(request.getMethod())) {
+            response.setHeader(HEADER, Long.toString(now + windowMillis));
+            ReplicaRoutingDataSource.pinToPrimary();
+            return true;
+        }
+        // Values beyond one window ahead did not come from this server and are ignored
+        String until = request.getHeader(HEADER);
+        if (until != null) {
+            try {
+                long pinnedUntil = Long.parseLong(until.trim());
+                if (pinnedUntil > now && pinnedUntil <= now + windowMillis) {
+                    ReplicaRoutingDataSource.pinToPrimary();
+                }
+            } catch (NumberFormatException ignored) {
+                // Malformed header: read from the replica as usual
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReplicaRoutingDataSource.clearPin();
+    }
+
+    // Async requests such as /changes release their thread here; afterCompletion then runs on another one
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReplicaRoutingDataSource.clearPin();
+    }
+
+    private boolean isWrite(String method) {
+        return !"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method);
+    }
+}
@@ -0,0 +1,95 @@
+package com.costumerental.billing.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the replica's replay lag and takes it out of rotation while the lag exceeds
+ * rental.replica.max-lag (or the replica cannot be reached), so reads never fall further
+ * behind than that. Exposed as the db.replica.lag gauge. The check runs on its own thread rather than
+ * the shared @Scheduled one, so a long sweep or outbox drain cannot leave a lagging replica in rotation.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    // A replica that has replayed everything it received is current even if the primary has been idle
+    private static final String LAG_QUERY =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    // WAL the replica has not received yet does not show up as lag, and this JVM's clock is not the database's:
+    // commits this close to a check are not counted as replicated
+    private static final long IN_FLIGHT_MARGIN_MILLIS = 500;
+
+    private final JdbcTemplate replica;
+    private final ReplicaRoutingDataSource routing;
+    private final Duration maxLag;
+    private final Duration checkInterval;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile long lagMillis;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, ReplicaRoutingDataSource routing,
+                             Duration maxLag, Duration checkInterval, MeterRegistry registry) {
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.replica.setQueryTimeout(2);
+        this.routing = routing;
+        this.maxLag = maxLag;
+        this.checkInterval = checkInterval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("db.replica.lag", this, monitor -> monitor.lagMillis)
+                .baseUnit("milliseconds")
+                .description("Replay lag of the read replica, -1 while it is unreachable")
+                .register(registry);
+    }
+
+    // Until the first check the lag is unknown, so no change counts as replicated yet
+    public void start() {
+        ReplicaRoutingDataSource.setReplicatedThrough(Long.MIN_VALUE);
+        scheduler.scheduleWithFixedDelay(this::check, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+        ReplicaRoutingDataSource.setReplicatedThrough(Long.MAX_VALUE);
+    }
+
+    public void check() {
+        boolean wasUsable = routing.isReplicaUsable();
+        boolean usable;
+        long checkedAt = System.currentTimeMillis();
+        try {
+            Number lag = replica.queryForObject(LAG_QUERY, Number.class);
+            lagMillis = lag != null ? lag.longValue() : 0;
+            usable = lagMillis <= maxLag.toMillis();
+        } catch (RuntimeException e) {
+            lagMillis = -1;
+            usable = false;
+        }
+        routing.setReplicaUsable(usable);
+        // Everything committed before the replica's replay position, as of the moment the check started
+        ReplicaRoutingDataSource.setReplicatedThrough(lagMillis >= 0 ?
+                checkedAt - lagMillis - IN_FLIGHT_MARGIN_MILLIS : Long.MIN_VALUE);
+        if (usable != wasUsable) {
+            if (usable) {
+                log.info("Read replica back in rotation (lag {} ms)", lagMillis);
+            } else {
+                log.warn("Read replica out of rotation, reads go to the primary (lag {} ms)", lagMillis);
+            }
+        }
+    }
+}
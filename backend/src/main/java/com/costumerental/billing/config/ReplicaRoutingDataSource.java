@@ -0,0 +1,73 @@
+package com.costumerental.billing.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to the replica pool and everything else to the primary.
+ * Falls back to the primary while ReplicaLagMonitor reports the replica as too far behind,
+ * for requests pinned by ReadYourWritesInterceptor after the caller's own write, and for
+ * reads that must match primary-side state (cache loads, and ETag checks on tables changed
+ * more recently than the replica is known to have replayed).
+ * Must sit behind a LazyConnectionDataSourceProxy so the lookup happens after the
+ * transaction's read-only flag is set.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = ThreadLocal.withInitial(() -> false);
+
+    // Wall-clock time up to which primary commits are known to be on the replica, kept by ReplicaLagMonitor.
+    // Without the read-replica profile every read goes to the primary anyway, so everything counts as replicated
+    private static volatile long replicatedThrough = Long.MAX_VALUE;
+
+    private volatile boolean replicaUsable = true;
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        return readOnly && replicaUsable && !PINNED_TO_PRIMARY.get() ? REPLICA : PRIMARY;
+    }
+
+    public void setReplicaUsable(boolean replicaUsable) {
+        this.replicaUsable = replicaUsable;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    static void setReplicatedThrough(long epochMillis) {
+        replicatedThrough = epochMillis;
+    }
+
+    // Whether a change the primary committed at the given time is already visible on the replica
+    public static boolean isReplicated(long committedAt) {
+        return committedAt <= replicatedThrough;
+    }
+
+    public static void pinToPrimary() {
+        PINNED_TO_PRIMARY.set(true);
+    }
+
+    public static void clearPin() {
+        PINNED_TO_PRIMARY.remove();
+    }
+
+    // Runs the action on the primary even inside read-only transactions it opens, then restores the previous pin
+    public static <T> T onPrimary(Supplier<T> action) {
+        boolean pinned = PINNED_TO_PRIMARY.get();
+        PINNED_TO_PRIMARY.set(true);
+        try {
+            return action.get();
+        } finally {
+            if (!pinned) {
+                PINNED_TO_PRIMARY.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.costumerental.billing.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread so that
+ * RequestMetricsInterceptor can record how many statements each request issued,
+ * and passes them to TableChangeTracker to note which tables were written. The
+ * last statement is kept so that tests can EXPLAIN the SQL a repository really sends.
+ */
+public class StatementCountingInspector implements StatementInspector {
+
+    // StatementInspector is Serializable; the state lives in the static thread-local, not the instance
+    private static final long serialVersionUID = 1L;
+
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    private static final ThreadLocal<String> LAST = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        LAST.set(sql);
+        TableChangeTracker.recordStatement(sql);
+        return sql;
+    }
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+        LAST.remove();
+    }
+
+    public static int current() {
+        return COUNT.get()[0];
+    }
+
+    // The SQL of the last statement prepared on this thread, with ? placeholders for the bind parameters
+    public static String lastStatement() {
+        return LAST.get();
+    }
+}
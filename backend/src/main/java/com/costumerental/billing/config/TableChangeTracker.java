@@ -0,0 +1,128 @@
+package com.costumerental.billing.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-table change counters fed by StatementCountingInspector, so list endpoints can build ETags
+ * and answer If-None-Match with 304 without querying or serializing anything. Counters move only
+ * after the writing transaction commits and live in this JVM, like the other in-memory indexes.
+ */
+public final class TableChangeTracker {
+    
+    private static final Pattern WRITE = Pattern.compile(
+            "\\b(?:insert\\s+into|update|delete\\s+from)\\s+([a-z_][a-z0-9_]*)", Pattern.CASE_INSENSITIVE);
+    
+    // Distinguishes counters from before a restart, which all start again at zero
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+    
+    private static final long STARTED_AT = System.currentTimeMillis();
+    
+    private static final Object PENDING_KEY = new Object();
+    
+    private static class Change {
+        private final AtomicLong count = new AtomicLong();
+        private volatile long lastModified = STARTED_AT;
+    }
+    
+    private static final ConcurrentHashMap<String, Change> CHANGES = new ConcurrentHashMap<>();
+    
+    private TableChangeTracker() {}
+    
+    static void recordStatement(String sql) {
+        Matcher matcher = WRITE.matcher(sql);
+        if (!matcher.find()) {
+            return;
+        }
+        Set<String> tables = new HashSet<>();
+        do {
+            tables.add(matcher.group(1).toLowerCase());
+        } while (matcher.find());
+        
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            tables.forEach(TableChangeTracker::bump);
+            return;
+        }
+        // Collect the tables written by this transaction and bump them once it commits
+        @SuppressWarnings("unchecked")
+        Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(PENDING_KEY);
+        if (pending == null) {
+            Set<String> written = new HashSet<>();
+            pending = written;
+            TransactionSynchronizationManager.bindResource(PENDING_KEY, written);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    written.forEach(TableChangeTracker::bump);
+                }
+                
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_KEY);
+                }
+            });
+        }
+        pending.addAll(tables);
+    }
+    
+    public static String etag(String... tables) {
+        StringBuilder etag = new StringBuilder(EPOCH);
+        for (String table : tables) {
+            etag.append('-').append(change(table).count.get());
+        }
+        return etag.toString();
+    }
+    
+    public static long lastModified(String... tables) {
+        long lastModified = STARTED_AT;
+        for (String table : tables) {
+            lastModified = Math.max(lastModified, change(table).lastModified);
+        }
+        return lastModified;
+    }
+    
+    // Sets ETag and Last-Modified from the given tables and returns true (with a 304 prepared) if the client is current.
+    // The counters move when the primary commits. If the replica may not have replayed the latest of those commits
+    // (or its lag is unknown) the rest of the request reads from the primary, since a lagging replica would pair the
+    // new ETag with old rows; otherwise the list is read from the replica (ReadYourWritesInterceptor clears the pin).
+    public static boolean checkNotModified(ServletWebRequest request, String... tables) {
+        String etag = etag(tables);
+        long lastModified = lastModified(tables);
+        if (!ReplicaRoutingDataSource.isReplicated(lastModified)) {
+            ReplicaRoutingDataSource.pinToPrimary();
+        }
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        return request.checkNotModified(weak(etag), lastModified);
+    }
+    
+    // Entity-level variant for representations that only change with the entity's own version
+    public static boolean checkNotModified(ServletWebRequest request, String entity, Long id, long version) {
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        return request.checkNotModified(weak(entity + "-" + id + "-v" + version));
+    }
+    
+    // Weak validators: Tomcat does not gzip a response with a strong ETag, since the compressed bytes would differ
+    // from what the tag promises. If-None-Match compares weakly, so polls still get their 304.
+    private static String weak(String etag) {
+        return "W/\"" + etag + "\"";
+    }
+    
+    private static void bump(String table) {
+        Change change = change(table);
+        change.lastModified = System.currentTimeMillis();
+        change.count.incrementAndGet();
+    }
+    
+    private static Change change(String table) {
+        return CHANGES.computeIfAbsent(table, name -> new Change());
+    }
+}
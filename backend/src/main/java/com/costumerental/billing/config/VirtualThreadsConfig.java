@@ -0,0 +1,21 @@
+package com.costumerental.billing.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Guards the virtual-threads profile. Spring quietly ignores spring.threads.virtual.enabled before Java 21,
+ * which would leave the profile's shorter connection timeout in front of the Tomcat thread pool, so startup
+ * fails on older runtimes instead.
+ */
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadsConfig {
+
+    public VirtualThreadsConfig() {
+        if (Runtime.version().feature() < 21) {
+            throw new IllegalStateException("The virtual-threads profile needs a Java 21+ runtime, not Java "
+                                            + Runtime.version());
+        }
+    }
+}
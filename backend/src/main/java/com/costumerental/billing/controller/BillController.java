@@ -1,14 +1,23 @@
 package com.costumerental.billing.controller;
 
+import com.costumerental.billing.config.TableChangeTracker;
+import com.costumerental.billing.dto.CursorPage;
 import com.costumerental.billing.model.Bill;
 import com.costumerental.billing.model.Rental;
 import com.costumerental.billing.service.BillingService;
+import com.costumerental.billing.service.DomainException;
+import com.costumerental.billing.service.ExportService;
+import com.costumerental.billing.service.IdempotencyStore;
 import com.costumerental.billing.service.RentalService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -19,47 +28,120 @@ import java.util.Optional;
 @CrossOrigin(origins = "http://localhost:4200")
 public class BillController {
     
+    // Tables behind the list representations; any write to them changes the ETag
+    private static final String[] LIST_TABLES = {"bills", "rentals", "customers", "costumes"};
+    
     @Autowired
     private BillingService billingService;
     
     @Autowired
     private RentalService rentalService;
     
+    @Autowired
+    private ExportService exportService;
+    
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+    
     @GetMapping
-    public List<Bill> getAllBills() {
+    public List<Bill> getAllBills(ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
         return billingService.getAllBills();
     }
     
+    @GetMapping(params = "limit")
+    public CursorPage<Bill> getBillsPage(@RequestParam(required = false) Long after, 
+                                         @RequestParam int limit) {
+        return billingService.getAllBills(after, limit);
+    }
+    
+    @GetMapping("/export")
+    public void exportBills(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) throws IOException {
+        ExportService.Format exportFormat;
+        try {
+            exportFormat = ExportService.Format.from(format);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unsupported export format: " + format);
+            return;
+        }
+        try (OutputStream out = ExportService.open(response, "bills", exportFormat, gzip)) {
+            exportService.writeBills(out, exportFormat, startDate, endDate);
+        }
+    }
+    
     @GetMapping("/{id}")
-    public ResponseEntity<Bill> getBillById(@PathVariable Long id) {
+    public ResponseEntity<Bill> getBillById(@PathVariable Long id, ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
         Optional<Bill> bill = billingService.getBillById(id);
         return bill.map(ResponseEntity::ok)
                   .orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/pending")
-    public List<Bill> getPendingBills() {
+    public List<Bill> getPendingBills(ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
         return billingService.getPendingBills();
     }
     
+    @GetMapping(value = "/pending", params = "limit")
+    public CursorPage<Bill> getPendingBillsPage(@RequestParam(required = false) Long after, 
+                                                @RequestParam int limit) {
+        return billingService.getPendingBills(after, limit);
+    }
+    
     @GetMapping("/overdue")
-    public List<Bill> getOverdueBills() {
+    public List<Bill> getOverdueBills(ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
         return billingService.getOverdueBills();
     }
     
+    @GetMapping(value = "/overdue", params = "limit")
+    public CursorPage<Bill> getOverdueBillsPage(@RequestParam(required = false) Long after, 
+                                                @RequestParam int limit) {
+        return billingService.getOverdueBills(after, limit);
+    }
+    
     @GetMapping("/customer/{customerId}")
-    public List<Bill> getBillsByCustomer(@PathVariable Long customerId) {
+    public List<Bill> getBillsByCustomer(@PathVariable Long customerId, ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
         return billingService.getBillsByCustomer(customerId);
     }
     
+    @GetMapping(value = "/customer/{customerId}", params = "limit")
+    public CursorPage<Bill> getBillsByCustomerPage(@PathVariable Long customerId,
+                                                   @RequestParam(required = false) Long after,
+                                                   @RequestParam int limit) {
+        return billingService.getBillsByCustomer(customerId, after, limit);
+    }
+    
     @GetMapping("/revenue")
-    public ResponseEntity<Double> getTotalRevenue(
+    public ResponseEntity<BigDecimal> getTotalRevenue(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
-        Double revenue = billingService.getTotalRevenue(startDate, endDate);
+        BigDecimal revenue = billingService.getTotalRevenue(startDate, endDate);
         return ResponseEntity.ok(revenue);
     }
     
+    @PostMapping("/revenue/rebuild")
+    public ResponseEntity<Integer> rebuildRevenueBuckets() {
+        return ResponseEntity.ok(billingService.rebuildRevenueBuckets());
+    }
+    
     @PutMapping("/{id}/fees")
     public ResponseEntity<Bill> updateBillWithFees(
             @PathVariable Long id,
@@ -69,21 +151,24 @@ public class BillController {
         try {
             Bill bill = billingService.updateBillWithFees(id, damageFee, discount, notes);
             return ResponseEntity.ok(bill);
-        } catch (RuntimeException e) {
+        } catch (DomainException e) {
             return ResponseEntity.notFound().build();
         }
     }
     
     @PutMapping("/{id}/pay")
     public ResponseEntity<Bill> markBillAsPaid(
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
             @PathVariable Long id,
             @RequestParam Bill.PaymentMethod paymentMethod) {
-        try {
-            Bill bill = billingService.markBillAsPaid(id, paymentMethod);
-            return ResponseEntity.ok(bill);
-        } catch (RuntimeException e) {
-            return ResponseEntity.notFound().build();
-        }
+        return idempotencyStore.execute("PUT /bills/" + id + "/pay", idempotencyKey, paymentMethod.name(), () -> {
+            try {
+                Bill bill = billingService.markBillAsPaid(id, paymentMethod);
+                return ResponseEntity.ok(bill);
+            } catch (DomainException e) {
+                return ResponseEntity.notFound().build();
+            }
+        });
     }
     
     @PostMapping("/generate/{rentalId}")
@@ -96,7 +181,7 @@ public class BillController {
             } else {
                 return ResponseEntity.notFound().build();
             }
-        } catch (RuntimeException e) {
+        } catch (DomainException e) {
             return ResponseEntity.badRequest().build();
         }
     }
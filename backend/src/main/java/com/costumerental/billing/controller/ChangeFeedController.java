@@ -0,0 +1,23 @@
+package com.costumerental.billing.controller;
+
+import com.costumerental.billing.service.ChangeFeed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/changes")
+@CrossOrigin(origins = "http://localhost:4200")
+public class ChangeFeedController {
+    
+    @Autowired
+    private ChangeFeed changeFeed;
+    
+    // EventSource resends the last event id on reconnect; ?since= lets a fresh page resume from a stored token
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                @RequestParam(required = false) String since) {
+        return changeFeed.subscribe(lastEventId != null ? lastEventId : since);
+    }
+}
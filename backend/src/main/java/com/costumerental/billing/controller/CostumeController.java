@@ -1,13 +1,26 @@
 package com.costumerental.billing.controller;
 
+import com.costumerental.billing.config.TableChangeTracker;
+import com.costumerental.billing.dto.CostumeAvailability;
+import com.costumerental.billing.dto.CursorPage;
+import com.costumerental.billing.dto.ImportResult;
 import com.costumerental.billing.model.Costume;
 import com.costumerental.billing.repository.CostumeRepository;
+import com.costumerental.billing.service.ImportService;
+import com.costumerental.billing.service.CostumeCatalogService;
+import com.costumerental.billing.service.SearchService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,66 +29,138 @@ import java.util.Optional;
 @CrossOrigin(origins = "http://localhost:4200")
 public class CostumeController {
     
+    // Tables behind the list representations; any write to them changes the ETag
+    private static final String[] LIST_TABLES = {"costumes"};
+    
     @Autowired
     private CostumeRepository costumeRepository;
     
+    @Autowired
+    private SearchService searchService;
+    
+    @Autowired
+    private ImportService importService;
+    
+    @Autowired
+    private CostumeCatalogService costumeCatalogService;
+    
     @GetMapping
-    public List<Costume> getAllCostumes() {
+    public List<Costume> getAllCostumes(ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
         return costumeRepository.findAll();
     }
     
+    @GetMapping(params = "limit")
+    public CursorPage<Costume> getCostumesPage(@RequestParam(required = false) Long after, 
+                                               @RequestParam int limit) {
+        return CursorPage.of(costumeRepository.findByIdGreaterThanOrderByIdAsc(
+                CursorPage.start(after), CursorPage.window(limit)), limit, Costume::getId);
+    }
+    
     @GetMapping("/available")
-    public List<Costume> getAvailableCostumes() {
+    public List<Costume> getAvailableCostumes(ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
         return costumeRepository.findByAvailable(true);
     }
     
     @GetMapping("/with-stock")
-    public List<Costume> getCostumesWithStock() {
+    public List<Costume> getCostumesWithStock(ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
         return costumeRepository.findCostumesWithStock();
     }
     
+    @GetMapping("/availability")
+    public ResponseEntity<List<CostumeAvailability>> getAvailableBetween(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (to.isBefore(from)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(costumeCatalogService.getAvailableBetween(from, to));
+    }
+    
     @GetMapping("/{id}")
-    public ResponseEntity<Costume> getCostumeById(@PathVariable Long id) {
-        Optional<Costume> costume = costumeRepository.findById(id);
+    public ResponseEntity<Costume> getCostumeById(@PathVariable Long id, ServletWebRequest request) {
+        Optional<Costume> costume = costumeCatalogService.findCostumeById(id);
+        if (costume.isPresent() && TableChangeTracker.checkNotModified(request, "costume", id, costume.get().getVersion())) {
+            return null;
+        }
         return costume.map(ResponseEntity::ok)
                      .orElse(ResponseEntity.notFound().build());
     }
     
+    @GetMapping("/{id}/availability")
+    public ResponseEntity<CostumeAvailability> getAvailability(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (to.isBefore(from)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return costumeCatalogService.getAvailability(id, from, to)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     @GetMapping("/search")
-    public List<Costume> searchCostumes(@RequestParam String term) {
-        return costumeRepository.findBySearchTerm(term);
+    public List<Costume> searchCostumes(@RequestParam String term,
+                                        @RequestParam(defaultValue = "" + SearchService.DEFAULT_LIMIT) int limit) {
+        return searchService.searchCostumes(term, limit);
     }
     
     @GetMapping("/categories")
-    public List<String> getAllCategories() {
-        return costumeRepository.findDistinctCategories();
+    public List<String> getAllCategories(ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
+        return costumeCatalogService.getCategories();
     }
     
     @GetMapping("/sizes")
-    public List<String> getAllSizes() {
-        return costumeRepository.findDistinctSizes();
+    public List<String> getAllSizes(ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
+        return costumeCatalogService.getSizes();
     }
     
     @GetMapping("/category/{category}")
-    public List<Costume> getCostumesByCategory(@PathVariable String category) {
-        return costumeRepository.findByCategory(category);
+    public List<Costume> getCostumesByCategory(@PathVariable String category, ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
+        return costumeCatalogService.getCostumesByCategory(category);
     }
     
     @GetMapping("/size/{size}")
-    public List<Costume> getCostumesBySize(@PathVariable String size) {
+    public List<Costume> getCostumesBySize(@PathVariable String size, ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
         return costumeRepository.findBySize(size);
     }
     
     @PostMapping
     public ResponseEntity<Costume> createCostume(@Valid @RequestBody Costume costume) {
         try {
-            Costume savedCostume = costumeRepository.save(costume);
+            Costume savedCostume = costumeCatalogService.saveCostume(costume);
             return ResponseEntity.status(HttpStatus.CREATED).body(savedCostume);
-        } catch (Exception e) {
+        } catch (DataIntegrityViolationException e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
+    @PostMapping(value = "/import", consumes = {"text/csv", "text/plain"})
+    public ResponseEntity<ImportResult> importCostumes(InputStream csv) throws IOException {
+        return ResponseEntity.ok(importService.importCostumes(csv));
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<Costume> updateCostume(@PathVariable Long id, 
                                                @Valid @RequestBody Costume costumeDetails) {
@@ -90,7 +175,7 @@ public class CostumeController {
             costume.setAvailable(costumeDetails.getAvailable());
             costume.setStockQuantity(costumeDetails.getStockQuantity());
             costume.setOriginalPrice(costumeDetails.getOriginalPrice());
-            Costume updatedCostume = costumeRepository.save(costume);
+            Costume updatedCostume = costumeCatalogService.saveCostume(costume);
             return ResponseEntity.ok(updatedCostume);
         } else {
             return ResponseEntity.notFound().build();
@@ -100,7 +185,7 @@ public class CostumeController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteCostume(@PathVariable Long id) {
         if (costumeRepository.existsById(id)) {
-            costumeRepository.deleteById(id);
+            costumeCatalogService.deleteCostume(id);
             return ResponseEntity.noContent().build();
         } else {
             return ResponseEntity.notFound().build();
@@ -1,13 +1,28 @@
 package com.costumerental.billing.controller;
 
+import com.costumerental.billing.config.TableChangeTracker;
+import com.costumerental.billing.dto.ChangeEvent;
+import com.costumerental.billing.dto.CursorPage;
+import com.costumerental.billing.dto.CustomerSummary;
+import com.costumerental.billing.dto.ImportResult;
+import com.costumerental.billing.dto.CustomerSuggestion;
 import com.costumerental.billing.model.Customer;
 import com.costumerental.billing.repository.CustomerRepository;
+import com.costumerental.billing.service.ChangeFeed;
+import com.costumerental.billing.service.ImportService;
+import com.costumerental.billing.service.CustomerSuggestIndex;
+import com.costumerental.billing.service.CustomerSummaryService;
+import com.costumerental.billing.service.SearchService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,14 +31,39 @@ import java.util.Optional;
 @CrossOrigin(origins = "http://localhost:4200")
 public class CustomerController {
     
+    // Tables behind the summary representation; any write to them changes the ETag
+    private static final String[] SUMMARY_TABLES = {"customers", "rentals", "bills", "costumes"};
+    
     @Autowired
     private CustomerRepository customerRepository;
     
+    @Autowired
+    private SearchService searchService;
+    
+    @Autowired
+    private ImportService importService;
+    
+    @Autowired
+    private CustomerSuggestIndex customerSuggestIndex;
+    
+    @Autowired
+    private CustomerSummaryService customerSummaryService;
+    
+    @Autowired
+    private ChangeFeed changeFeed;
+    
     @GetMapping
     public List<Customer> getAllCustomers() {
         return customerRepository.findAll();
     }
     
+    @GetMapping(params = "limit")
+    public CursorPage<Customer> getCustomersPage(@RequestParam(required = false) Long after, 
+                                                 @RequestParam int limit) {
+        return CursorPage.of(customerRepository.findByIdGreaterThanOrderByIdAsc(
+                CursorPage.start(after), CursorPage.window(limit)), limit, Customer::getId);
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<Customer> getCustomerById(@PathVariable Long id) {
         Optional<Customer> customer = customerRepository.findById(id);
@@ -31,21 +71,48 @@ public class CustomerController {
                       .orElse(ResponseEntity.notFound().build());
     }
     
+    // Profile, open rentals, recent history and balance for checkout in one call
+    @GetMapping("/{id}/summary")
+    public ResponseEntity<CustomerSummary> getCustomerSummary(@PathVariable Long id,
+                                                              @RequestParam(defaultValue = "" + CustomerSummaryService.DEFAULT_HISTORY) int history,
+                                                              ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, SUMMARY_TABLES)) {
+            return null;
+        }
+        return customerSummaryService.getSummary(id, history)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     @GetMapping("/search")
-    public List<Customer> searchCustomers(@RequestParam String term) {
-        return customerRepository.findBySearchTerm(term);
+    public List<Customer> searchCustomers(@RequestParam String term,
+                                          @RequestParam(defaultValue = "" + SearchService.DEFAULT_LIMIT) int limit) {
+        return searchService.searchCustomers(term, limit);
+    }
+    
+    @GetMapping("/suggest")
+    public List<CustomerSuggestion> suggestCustomers(@RequestParam String q,
+                                                     @RequestParam(defaultValue = "" + CustomerSuggestIndex.DEFAULT_LIMIT) int limit) {
+        return customerSuggestIndex.suggest(q, limit);
     }
     
     @PostMapping
     public ResponseEntity<Customer> createCustomer(@Valid @RequestBody Customer customer) {
         try {
             Customer savedCustomer = customerRepository.save(customer);
+            customerSuggestIndex.put(savedCustomer);
+            changeFeed.changed(ChangeEvent.CUSTOMER, ChangeEvent.CREATED, savedCustomer.getId());
             return ResponseEntity.status(HttpStatus.CREATED).body(savedCustomer);
-        } catch (Exception e) {
+        } catch (DataIntegrityViolationException e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
+    @PostMapping(value = "/import", consumes = {"text/csv", "text/plain"})
+    public ResponseEntity<ImportResult> importCustomers(InputStream csv) throws IOException {
+        return ResponseEntity.ok(importService.importCustomers(csv));
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<Customer> updateCustomer(@PathVariable Long id, 
                                                   @Valid @RequestBody Customer customerDetails) {
@@ -59,6 +126,8 @@ public class CustomerController {
             customer.setAddress(customerDetails.getAddress());
             
             Customer updatedCustomer = customerRepository.save(customer);
+            customerSuggestIndex.put(updatedCustomer);
+            changeFeed.changed(ChangeEvent.CUSTOMER, ChangeEvent.UPDATED, id);
             return ResponseEntity.ok(updatedCustomer);
         } else {
             return ResponseEntity.notFound().build();
@@ -69,6 +138,8 @@ public class CustomerController {
     public ResponseEntity<Void> deleteCustomer(@PathVariable Long id) {
         if (customerRepository.existsById(id)) {
             customerRepository.deleteById(id);
+            customerSuggestIndex.remove(id);
+            changeFeed.changed(ChangeEvent.CUSTOMER, ChangeEvent.DELETED, id);
             return ResponseEntity.noContent().build();
         } else {
             return ResponseEntity.notFound().build();
@@ -1,13 +1,24 @@
 package com.costumerental.billing.controller;
 
+import com.costumerental.billing.config.TableChangeTracker;
+import com.costumerental.billing.dto.BulkRentalLine;
+import com.costumerental.billing.dto.BulkRentalResult;
+import com.costumerental.billing.dto.CursorPage;
 import com.costumerental.billing.model.Rental;
+import com.costumerental.billing.service.DomainException;
+import com.costumerental.billing.service.ExportService;
+import com.costumerental.billing.service.IdempotencyStore;
 import com.costumerental.billing.service.RentalService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -17,51 +28,132 @@ import java.util.Optional;
 @CrossOrigin(origins = "http://localhost:4200")
 public class RentalController {
     
+    // Tables behind the list representations; any write to them changes the ETag
+    private static final String[] LIST_TABLES = {"rentals", "customers", "costumes"};
+    
     @Autowired
     private RentalService rentalService;
     
+    @Autowired
+    private ExportService exportService;
+    
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+    
     @GetMapping
-    public List<Rental> getAllRentals() {
+    public List<Rental> getAllRentals(ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
         return rentalService.getAllRentals();
     }
     
+    @GetMapping(params = "limit")
+    public CursorPage<Rental> getRentalsPage(@RequestParam(required = false) Long after, 
+                                             @RequestParam int limit) {
+        return rentalService.getAllRentals(after, limit);
+    }
+    
+    @GetMapping("/export")
+    public void exportRentals(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) throws IOException {
+        ExportService.Format exportFormat;
+        try {
+            exportFormat = ExportService.Format.from(format);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unsupported export format: " + format);
+            return;
+        }
+        try (OutputStream out = ExportService.open(response, "rentals", exportFormat, gzip)) {
+            exportService.writeRentals(out, exportFormat, startDate, endDate);
+        }
+    }
+    
     @GetMapping("/{id}")
-    public ResponseEntity<Rental> getRentalById(@PathVariable Long id) {
+    public ResponseEntity<Rental> getRentalById(@PathVariable Long id, ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
         Optional<Rental> rental = rentalService.getRentalById(id);
         return rental.map(ResponseEntity::ok)
                     .orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/active")
-    public List<Rental> getActiveRentals() {
+    public List<Rental> getActiveRentals(ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
         return rentalService.getActiveRentals();
     }
     
+    @GetMapping(value = "/active", params = "limit")
+    public CursorPage<Rental> getActiveRentalsPage(@RequestParam(required = false) Long after, 
+                                                   @RequestParam int limit) {
+        return rentalService.getActiveRentals(after, limit);
+    }
+    
     @GetMapping("/overdue")
-    public List<Rental> getOverdueRentals() {
+    public List<Rental> getOverdueRentals(ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
         return rentalService.getOverdueRentals();
     }
     
+    @GetMapping(value = "/overdue", params = "limit")
+    public CursorPage<Rental> getOverdueRentalsPage(@RequestParam(required = false) Long after, 
+                                                    @RequestParam int limit) {
+        return rentalService.getOverdueRentals(after, limit);
+    }
+    
     @GetMapping("/customer/{customerId}")
-    public List<Rental> getRentalsByCustomer(@PathVariable Long customerId) {
+    public List<Rental> getRentalsByCustomer(@PathVariable Long customerId, ServletWebRequest request) {
+        if (TableChangeTracker.checkNotModified(request, LIST_TABLES)) {
+            return null;
+        }
         return rentalService.getRentalsByCustomer(customerId);
     }
     
+    @GetMapping(value = "/customer/{customerId}", params = "limit")
+    public CursorPage<Rental> getRentalsByCustomerPage(@PathVariable Long customerId,
+                                                       @RequestParam(required = false) Long after,
+                                                       @RequestParam int limit) {
+        return rentalService.getRentalsByCustomer(customerId, after, limit);
+    }
+    
     @PostMapping
     public ResponseEntity<Rental> createRental(
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
             @RequestParam Long customerId,
             @RequestParam Long costumeId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate rentalDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expectedReturnDate,
             @RequestParam(required = false) String notes,
             @RequestParam(required = false, defaultValue = "true") Boolean generateBill) {
-        try {
-            Rental rental = rentalService.createRental(customerId, costumeId, rentalDate, 
-                                                      expectedReturnDate, notes, generateBill);
-            return ResponseEntity.status(HttpStatus.CREATED).body(rental);
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().build();
-        }
+        String fingerprint = customerId + "|" + costumeId + "|" + rentalDate + "|" + expectedReturnDate + "|" +
+                             notes + "|" + generateBill;
+        return idempotencyStore.execute("POST /rentals", idempotencyKey, fingerprint, () -> {
+            try {
+                Rental rental = rentalService.createRental(customerId, costumeId, rentalDate, 
+                                                          expectedReturnDate, notes, generateBill);
+                return ResponseEntity.status(HttpStatus.CREATED).body(rental);
+            } catch (DomainException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        });
+    }
+    
+    @PostMapping("/batch")
+    public ResponseEntity<List<BulkRentalResult>> createRentals(
+            @RequestBody List<BulkRentalLine> lines,
+            @RequestParam(required = false, defaultValue = "true") Boolean generateBill) {
+        List<BulkRentalResult> results = rentalService.createRentals(lines, generateBill);
+        return ResponseEntity.status(HttpStatus.CREATED).body(results);
     }
     
     @PutMapping("/{id}/return")
@@ -71,7 +163,7 @@ public class RentalController {
         try {
             Rental rental = rentalService.returnCostume(id, actualReturnDate);
             return ResponseEntity.ok(rental);
-        } catch (RuntimeException e) {
+        } catch (DomainException e) {
             return ResponseEntity.badRequest().build();
         }
     }
@@ -81,7 +173,7 @@ public class RentalController {
         try {
             Rental rental = rentalService.cancelRental(id);
             return ResponseEntity.ok(rental);
-        } catch (RuntimeException e) {
+        } catch (DomainException e) {
             return ResponseEntity.badRequest().build();
         }
     }
@@ -91,7 +183,7 @@ public class RentalController {
         try {
             Rental rental = rentalService.updateRentalNotes(id, notes);
             return ResponseEntity.ok(rental);
-        } catch (RuntimeException e) {
+        } catch (DomainException e) {
             return ResponseEntity.notFound().build();
         }
     }
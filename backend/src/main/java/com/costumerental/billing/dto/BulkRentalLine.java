@@ -0,0 +1,68 @@
+package com.costumerental.billing.dto;
+
+import java.time.LocalDate;
+
+public class BulkRentalLine {
+    
+    private Long customerId;
+    
+    private Long costumeId;
+    
+    private LocalDate rentalDate;
+    
+    private LocalDate expectedReturnDate;
+    
+    private String notes;
+    
+    // Constructors
+    public BulkRentalLine() {}
+    
+    public BulkRentalLine(Long customerId, Long costumeId, LocalDate rentalDate, LocalDate expectedReturnDate, String notes) {
+        this.customerId = customerId;
+        this.costumeId = costumeId;
+        this.rentalDate = rentalDate;
+        this.expectedReturnDate = expectedReturnDate;
+        this.notes = notes;
+    }
+    
+    // Getters and Setters
+    public Long getCustomerId() {
+        return customerId;
+    }
+    
+    public void setCustomerId(Long customerId) {
+        this.customerId = customerId;
+    }
+    
+    public Long getCostumeId() {
+        return costumeId;
+    }
+    
+    public void setCostumeId(Long costumeId) {
+        this.costumeId = costumeId;
+    }
+    
+    public LocalDate getRentalDate() {
+        return rentalDate;
+    }
+    
+    public void setRentalDate(LocalDate rentalDate) {
+        this.rentalDate = rentalDate;
+    }
+    
+    public LocalDate getExpectedReturnDate() {
+        return expectedReturnDate;
+    }
+    
+    public void setExpectedReturnDate(LocalDate expectedReturnDate) {
+        this.expectedReturnDate = expectedReturnDate;
+    }
+    
+    public String getNotes() {
+        return notes;
+    }
+    
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+}
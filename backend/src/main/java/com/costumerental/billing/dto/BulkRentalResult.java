@@ -0,0 +1,63 @@
+package com.costumerental.billing.dto;
+
+public class BulkRentalResult {
+    
+    private int line;
+    
+    private boolean created;
+    
+    private Long rentalId;
+    
+    private String error;
+    
+    // Constructors
+    public BulkRentalResult() {}
+    
+    public BulkRentalResult(int line, boolean created, Long rentalId, String error) {
+        this.line = line;
+        this.created = created;
+        this.rentalId = rentalId;
+        this.error = error;
+    }
+    
+    public static BulkRentalResult created(int line, Long rentalId) {
+        return new BulkRentalResult(line, true, rentalId, null);
+    }
+    
+    public static BulkRentalResult rejected(int line, String error) {
+        return new BulkRentalResult(line, false, null, error);
+    }
+    
+    // Getters and Setters
+    public int getLine() {
+        return line;
+    }
+    
+    public void setLine(int line) {
+        this.line = line;
+    }
+    
+    public boolean isCreated() {
+        return created;
+    }
+    
+    public void setCreated(boolean created) {
+        this.created = created;
+    }
+    
+    public Long getRentalId() {
+        return rentalId;
+    }
+    
+    public void setRentalId(Long rentalId) {
+        this.rentalId = rentalId;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,112 @@
+package com.costumerental.billing.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// One entry of the /changes feed; only the fields relevant to the action are set
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEvent {
+    
+    public static final String COSTUME = "costume";
+    public static final String RENTAL = "rental";
+    public static final String CUSTOMER = "customer";
+    
+    // created, updated, deleted, stock, status, or refresh when many rows changed at once (id is then null)
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+    public static final String STOCK = "stock";
+    public static final String STATUS = "status";
+    public static final String REFRESH = "refresh";
+    
+    private String entity;
+    
+    private String action;
+    
+    private Long id;
+    
+    // Costume stock deltas
+    private Integer availableStock;
+    
+    private Boolean available;
+    
+    // Rental status deltas
+    private String status;
+    
+    private Long costumeId;
+    
+    private Long customerId;
+    
+    // Constructors
+    public ChangeEvent() {}
+    
+    public ChangeEvent(String entity, String action, Long id) {
+        this.entity = entity;
+        this.action = action;
+        this.id = id;
+    }
+    
+    // Getters and Setters
+    public String getEntity() {
+        return entity;
+    }
+    
+    public void setEntity(String entity) {
+        this.entity = entity;
+    }
+    
+    public String getAction() {
+        return action;
+    }
+    
+    public void setAction(String action) {
+        this.action = action;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Integer getAvailableStock() {
+        return availableStock;
+    }
+    
+    public void setAvailableStock(Integer availableStock) {
+        this.availableStock = availableStock;
+    }
+    
+    public Boolean getAvailable() {
+        return available;
+    }
+    
+    public void setAvailable(Boolean available) {
+        this.available = available;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public Long getCostumeId() {
+        return costumeId;
+    }
+    
+    public void setCostumeId(Long costumeId) {
+        this.costumeId = costumeId;
+    }
+    
+    public Long getCustomerId() {
+        return customerId;
+    }
+    
+    public void setCustomerId(Long customerId) {
+        this.customerId = customerId;
+    }
+}
@@ -0,0 +1,81 @@
+package com.costumerental.billing.dto;
+
+import java.time.LocalDate;
+
+public class CostumeAvailability {
+    
+    private Long costumeId;
+    
+    private String name;
+    
+    private LocalDate from;
+    
+    private LocalDate to;
+    
+    private Integer stockQuantity;
+    
+    // Units not booked on any day of the range
+    private Integer freeUnits;
+    
+    // Constructors
+    public CostumeAvailability() {}
+    
+    public CostumeAvailability(Long costumeId, String name, LocalDate from, LocalDate to, 
+                               Integer stockQuantity, Integer freeUnits) {
+        this.costumeId = costumeId;
+        this.name = name;
+        this.from = from;
+        this.to = to;
+        this.stockQuantity = stockQuantity;
+        this.freeUnits = freeUnits;
+    }
+    
+    // Getters and Setters
+    public Long getCostumeId() {
+        return costumeId;
+    }
+    
+    public void setCostumeId(Long costumeId) {
+        this.costumeId = costumeId;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public LocalDate getFrom() {
+        return from;
+    }
+    
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+    
+    public LocalDate getTo() {
+        return to;
+    }
+    
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+    
+    public Integer getStockQuantity() {
+        return stockQuantity;
+    }
+    
+    public void setStockQuantity(Integer stockQuantity) {
+        this.stockQuantity = stockQuantity;
+    }
+    
+    public Integer getFreeUnits() {
+        return freeUnits;
+    }
+    
+    public void setFreeUnits(Integer freeUnits) {
+        this.freeUnits = freeUnits;
+    }
+}
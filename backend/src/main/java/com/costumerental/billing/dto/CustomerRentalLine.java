@@ -0,0 +1,142 @@
+package com.costumerental.billing.dto;
+
+import com.costumerental.billing.model.Bill;
+import com.costumerental.billing.model.Rental;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// One rental in a CustomerSummary, flattened with its costume name and bill
+public class CustomerRentalLine {
+    
+    private Long rentalId;
+    
+    private Long costumeId;
+    
+    private String costumeName;
+    
+    private LocalDate rentalDate;
+    
+    private LocalDate expectedReturnDate;
+    
+    private LocalDate actualReturnDate;
+    
+    private Rental.RentalStatus status;
+    
+    private BigDecimal accruedLateFee;
+    
+    // Null until the rental has been billed
+    private Long billId;
+    
+    private BigDecimal billTotal;
+    
+    private Bill.BillStatus billStatus;
+    
+    // Constructors
+    public CustomerRentalLine() {}
+    
+    public CustomerRentalLine(Long rentalId, Long costumeId, String costumeName, LocalDate rentalDate, 
+                              LocalDate expectedReturnDate, LocalDate actualReturnDate, Rental.RentalStatus status, 
+                              BigDecimal accruedLateFee, Long billId, BigDecimal billTotal, Bill.BillStatus billStatus) {
+        this.rentalId = rentalId;
+        this.costumeId = costumeId;
+        this.costumeName = costumeName;
+        this.rentalDate = rentalDate;
+        this.expectedReturnDate = expectedReturnDate;
+        this.actualReturnDate = actualReturnDate;
+        this.status = status;
+        this.accruedLateFee = accruedLateFee;
+        this.billId = billId;
+        this.billTotal = billTotal;
+        this.billStatus = billStatus;
+    }
+    
+    // Getters and Setters
+    public Long getRentalId() {
+        return rentalId;
+    }
+    
+    public void setRentalId(Long rentalId) {
+        this.rentalId = rentalId;
+    }
+    
+    public Long getCostumeId() {
+        return costumeId;
+    }
+    
+    public void setCostumeId(Long costumeId) {
+        this.costumeId = costumeId;
+    }
+    
+    public String getCostumeName() {
+        return costumeName;
+    }
+    
+    public void setCostumeName(String costumeName) {
+        this.costumeName = costumeName;
+    }
+    
+    public LocalDate getRentalDate() {
+        return rentalDate;
+    }
+    
+    public void setRentalDate(LocalDate rentalDate) {
+        this.rentalDate = rentalDate;
+    }
+    
+    public LocalDate getExpectedReturnDate() {
+        return expectedReturnDate;
+    }
+    
+    public void setExpectedReturnDate(LocalDate expectedReturnDate) {
+        this.expectedReturnDate = expectedReturnDate;
+    }
+    
+    public LocalDate getActualReturnDate() {
+        return actualReturnDate;
+    }
+    
+    public void setActualReturnDate(LocalDate actualReturnDate) {
+        this.actualReturnDate = actualReturnDate;
+    }
+    
+    public Rental.RentalStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(Rental.RentalStatus status) {
+        this.status = status;
+    }
+    
+    public BigDecimal getAccruedLateFee() {
+        return accruedLateFee;
+    }
+    
+    public void setAccruedLateFee(BigDecimal accruedLateFee) {
+        this.accruedLateFee = accruedLateFee;
+    }
+    
+    public Long getBillId() {
+        return billId;
+    }
+    
+    public void setBillId(Long billId) {
+        this.billId = billId;
+    }
+    
+    public BigDecimal getBillTotal() {
+        return billTotal;
+    }
+    
+    public void setBillTotal(BigDecimal billTotal) {
+        this.billTotal = billTotal;
+    }
+    
+    public Bill.BillStatus getBillStatus() {
+        return billStatus;
+    }
+    
+    public void setBillStatus(Bill.BillStatus billStatus) {
+        this.billStatus = billStatus;
+    }
+}
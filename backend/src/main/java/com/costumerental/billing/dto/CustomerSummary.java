@@ -0,0 +1,112 @@
+package com.costumerental.billing.dto;
+
+import com.costumerental.billing.model.Customer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// Everything checkout shows about a customer; the counts cover all rentals, the lists are capped
+public class CustomerSummary {
+    
+    private Customer customer;
+    
+    private long rentalCount;
+    
+    // RESERVED, ACTIVE and OVERDUE rentals
+    private long openRentalCount;
+    
+    private long overdueCount;
+    
+    // PENDING and OVERDUE bills
+    private BigDecimal unpaidBills = BigDecimal.ZERO;
+    
+    // Late fees accrued on OVERDUE rentals that are not billed yet
+    private BigDecimal accruedLateFees = BigDecimal.ZERO;
+    
+    private BigDecimal outstandingBalance = BigDecimal.ZERO;
+    
+    private List<CustomerRentalLine> activeRentals = new ArrayList<>();
+    
+    private List<CustomerRentalLine> recentRentals = new ArrayList<>();
+    
+    // Constructors
+    public CustomerSummary() {}
+    
+    public CustomerSummary(Customer customer) {
+        this.customer = customer;
+    }
+    
+    // Getters and Setters
+    public Customer getCustomer() {
+        return customer;
+    }
+    
+    public void setCustomer(Customer customer) {
+        this.customer = customer;
+    }
+    
+    public long getRentalCount() {
+        return rentalCount;
+    }
+    
+    public void setRentalCount(long rentalCount) {
+        this.rentalCount = rentalCount;
+    }
+    
+    public long getOpenRentalCount() {
+        return openRentalCount;
+    }
+    
+    public void setOpenRentalCount(long openRentalCount) {
+        this.openRentalCount = openRentalCount;
+    }
+    
+    public long getOverdueCount() {
+        return overdueCount;
+    }
+    
+    public void setOverdueCount(long overdueCount) {
+        this.overdueCount = overdueCount;
+    }
+    
+    public BigDecimal getUnpaidBills() {
+        return unpaidBills;
+    }
+    
+    public void setUnpaidBills(BigDecimal unpaidBills) {
+        this.unpaidBills = unpaidBills;
+    }
+    
+    public BigDecimal getAccruedLateFees() {
+        return accruedLateFees;
+    }
+    
+    public void setAccruedLateFees(BigDecimal accruedLateFees) {
+        this.accruedLateFees = accruedLateFees;
+    }
+    
+    public BigDecimal getOutstandingBalance() {
+        return outstandingBalance;
+    }
+    
+    public void setOutstandingBalance(BigDecimal outstandingBalance) {
+        this.outstandingBalance = outstandingBalance;
+    }
+    
+    public List<CustomerRentalLine> getActiveRentals() {
+        return activeRentals;
+    }
+    
+    public void setActiveRentals(List<CustomerRentalLine> activeRentals) {
+        this.activeRentals = activeRentals;
+    }
+    
+    public List<CustomerRentalLine> getRecentRentals() {
+        return recentRentals;
+    }
+    
+    public void setRecentRentals(List<CustomerRentalLine> recentRentals) {
+        this.recentRentals = recentRentals;
+    }
+}
@@ -0,0 +1,92 @@
+package com.costumerental.billing.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportResult {
+    
+    // Only the first errors are returned so a bad file cannot blow up the response
+    public static final int MAX_REPORTED_ERRORS = 1000;
+    
+    private int totalRows;
+    
+    private int imported;
+    
+    private int failed;
+    
+    private List<RowError> errors = new ArrayList<>();
+    
+    public synchronized void addError(int row, String message) {
+        failed++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(row, message));
+        }
+    }
+    
+    public synchronized void addImported(int count) {
+        imported += count;
+    }
+    
+    // Getters and Setters
+    public int getTotalRows() {
+        return totalRows;
+    }
+    
+    public void setTotalRows(int totalRows) {
+        this.totalRows = totalRows;
+    }
+    
+    public int getImported() {
+        return imported;
+    }
+    
+    public void setImported(int imported) {
+        this.imported = imported;
+    }
+    
+    public int getFailed() {
+        return failed;
+    }
+    
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+    
+    public List<RowError> getErrors() {
+        return errors;
+    }
+    
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors;
+    }
+    
+    public static class RowError {
+        
+        private int row;
+        
+        private String message;
+        
+        public RowError() {}
+        
+        public RowError(int row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+        
+        public int getRow() {
+            return row;
+        }
+        
+        public void setRow(int row) {
+            this.row = row;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
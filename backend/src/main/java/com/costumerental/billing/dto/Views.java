@@ -0,0 +1,10 @@
+package com.costumerental.billing.dto;
+
+// Jackson views; properties without a view only appear in the full (detail) representation
+public final class Views {
+    
+    private Views() {}
+    
+    // Only the fields the list tables render, selected with ?view=compact
+    public interface Compact {}
+}
@@ -1,6 +1,8 @@
 package com.costumerental.billing.model;
 
+import com.costumerental.billing.dto.Views;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonView;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
@@ -13,18 +15,21 @@ import java.time.LocalDateTime;
 public class Bill {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bills_seq")
+    @SequenceGenerator(name = "bills_seq", sequenceName = "bills_seq", allocationSize = 50)
+    @JsonView(Views.Compact.class)
     private Long id;
     
     @NotNull(message = "Rental is required")
     @OneToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "rental_id", nullable = false)
+    @JoinColumn(name = "rental_id", nullable = false, unique = true)
     @JsonIgnore
     private Rental rental;
     
     @NotNull(message = "Total amount is required")
     @DecimalMin(value = "0.0", inclusive = true, message = "Total amount must be non-negative")
     @Column(name = "total_amount", nullable = false, precision = 10, scale = 2)
+    @JsonView(Views.Compact.class)
     private BigDecimal totalAmount;
     
     @DecimalMin(value = "0.0", inclusive = true, message = "Late fee must be non-negative")
@@ -41,20 +46,25 @@ public class Bill {
     
     @NotNull(message = "Bill date is required")
     @Column(name = "bill_date", nullable = false)
+    @JsonView(Views.Compact.class)
     private LocalDateTime billDate;
     
     @Column(name = "due_date")
+    @JsonView(Views.Compact.class)
     private LocalDateTime dueDate;
     
     @Column(name = "paid_date")
+    @JsonView(Views.Compact.class)
     private LocalDateTime paidDate;
     
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false)
+    @JsonView(Views.Compact.class)
     private BillStatus status = BillStatus.PENDING;
     
     @Enumerated(EnumType.STRING)
     @Column(name = "payment_method")
+    @JsonView(Views.Compact.class)
     private PaymentMethod paymentMethod;
     
     @Column(name = "notes")
@@ -1,6 +1,8 @@
 package com.costumerental.billing.model;
 
+import com.costumerental.billing.dto.Views;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonView;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
@@ -15,12 +17,15 @@ import java.util.List;
 public class Costume {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "costumes_seq")
+    @SequenceGenerator(name = "costumes_seq", sequenceName = "costumes_seq", allocationSize = 50)
+    @JsonView(Views.Compact.class)
     private Long id;
     
     @NotBlank(message = "Costume name is required")
     @Size(max = 100, message = "Costume name must not exceed 100 characters")
     @Column(name = "name", nullable = false)
+    @JsonView(Views.Compact.class)
     private String name;
     
     @Size(max = 500, message = "Description must not exceed 500 characters")
@@ -30,29 +35,46 @@ public class Costume {
     @NotBlank(message = "Size is required")
     @Size(max = 10, message = "Size must not exceed 10 characters")
     @Column(name = "size", nullable = false)
+    @JsonView(Views.Compact.class)
     private String size;
     
     @NotBlank(message = "Category is required")
     @Size(max = 50, message = "Category must not exceed 50 characters")
     @Column(name = "category", nullable = false)
+    @JsonView(Views.Compact.class)
     private String category;
     
     @NotNull(message = "Sell price is required")
     @DecimalMin(value = "0.0", inclusive = false, message = "Sell price must be greater than 0")
     @Column(name = "sell_price", nullable = false, precision = 10, scale = 2)
+    @JsonView(Views.Compact.class)
     private BigDecimal sellPrice;
     
     @NotNull(message = "Original price is required")
     @DecimalMin(value = "0.0", inclusive = false, message = "Original price must be greater than 0")
     @Column(name = "original_price", nullable = false, precision = 10, scale = 2)
+    @JsonView(Views.Compact.class)
     private BigDecimal originalPrice;
     
     @Column(name = "available", nullable = false)
+    @JsonView(Views.Compact.class)
     private Boolean available = true;
     
     @Column(name = "stock_quantity", nullable = false)
+    @JsonView(Views.Compact.class)
     private Integer stockQuantity = 1;
     
+    // Only changed through the atomic reserve/release queries in CostumeRepository
+    @Column(name = "active_rental_count", nullable = false, updatable = false, columnDefinition = "integer default 0")
+    @JsonIgnore
+    private Integer activeRentalCount = 0;
+    
+    // Optimistic lock and ETag version; the stock queries in CostumeRepository bump it as well
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    @JsonIgnore
+    private long version;
+    
     @OneToMany(mappedBy = "costume", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore
     private List<Rental> rentals;
@@ -165,14 +187,26 @@ public class Costume {
         this.available = stockQuantity != null && stockQuantity > 0;
     }
     
+    public Integer getActiveRentalCount() {
+        return activeRentalCount;
+    }
+    
+    public void setActiveRentalCount(Integer activeRentalCount) {
+        this.activeRentalCount = activeRentalCount;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
+    @JsonView(Views.Compact.class)
     public Integer getAvailableStock() {
-        if (rentals == null) return stockQuantity;
-        
-        // Count active rentals
-        long activeRentals = rentals.stream()
-            .filter(rental -> rental.getStatus() == Rental.RentalStatus.ACTIVE)
-            .count();
-        
-        return Math.max(0, stockQuantity - (int) activeRentals);
+        // Active rentals are tracked in a persisted counter so the rentals collection is never loaded
+        int reserved = activeRentalCount != null ? activeRentalCount : 0;
+        return Math.max(0, stockQuantity - reserved);
     }
 }
\ No newline at end of file
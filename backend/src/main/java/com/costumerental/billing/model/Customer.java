@@ -1,6 +1,8 @@
 package com.costumerental.billing.model;
 
+import com.costumerental.billing.dto.Views;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonView;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -13,20 +15,25 @@ import java.util.List;
 public class Customer {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customers_seq")
+    @SequenceGenerator(name = "customers_seq", sequenceName = "customers_seq", allocationSize = 50)
+    @JsonView(Views.Compact.class)
     private Long id;
     
     @NotBlank(message = "First name is required")
     @Size(max = 100, message = "First name must not exceed 100 characters")
     @Column(name = "first_name", nullable = false)
+    @JsonView(Views.Compact.class)
     private String firstName;
     
     @Email(message = "Email should be valid")
     @Column(name = "email")
+    @JsonView(Views.Compact.class)
     private String email;
     
     @Size(max = 15, message = "Phone number must not exceed 15 characters")
     @Column(name = "phone")
+    @JsonView(Views.Compact.class)
     private String phone;
     
     @Size(max = 255, message = "Address must not exceed 255 characters")
@@ -0,0 +1,55 @@
+package com.costumerental.billing.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "daily_revenue")
+public class DailyRevenue {
+    
+    @Id
+    @Column(name = "revenue_date", nullable = false)
+    private LocalDate revenueDate;
+    
+    @Column(name = "total_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+    
+    @Column(name = "bill_count", nullable = false)
+    private Long billCount = 0L;
+    
+    // Constructors
+    public DailyRevenue() {}
+    
+    public DailyRevenue(LocalDate revenueDate, BigDecimal totalAmount, Long billCount) {
+        this.revenueDate = revenueDate;
+        this.totalAmount = totalAmount;
+        this.billCount = billCount;
+    }
+    
+    // Getters and Setters
+    public LocalDate getRevenueDate() {
+        return revenueDate;
+    }
+    
+    public void setRevenueDate(LocalDate revenueDate) {
+        this.revenueDate = revenueDate;
+    }
+    
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+    
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+    
+    public Long getBillCount() {
+        return billCount;
+    }
+    
+    public void setBillCount(Long billCount) {
+        this.billCount = billCount;
+    }
+}
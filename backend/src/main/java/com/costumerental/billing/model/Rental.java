@@ -1,9 +1,12 @@
 package com.costumerental.billing.model;
 
+import com.costumerental.billing.dto.Views;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonView;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
@@ -11,37 +14,49 @@ import java.time.LocalDate;
 public class Rental {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rentals_seq")
+    @SequenceGenerator(name = "rentals_seq", sequenceName = "rentals_seq", allocationSize = 50)
+    @JsonView(Views.Compact.class)
     private Long id;
     
     @NotNull(message = "Customer is required")
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "customer_id", nullable = false)
+    @JsonView(Views.Compact.class)
     private Customer customer;
     
     @NotNull(message = "Costume is required")
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "costume_id", nullable = false)
+    @JsonView(Views.Compact.class)
     private Costume costume;
     
     @NotNull(message = "Rental date is required")
     @Column(name = "rental_date", nullable = false)
+    @JsonView(Views.Compact.class)
     private LocalDate rentalDate;
     
     @NotNull(message = "Expected return date is required")
     @Column(name = "expected_return_date", nullable = false)
+    @JsonView(Views.Compact.class)
     private LocalDate expectedReturnDate;
     
     @Column(name = "actual_return_date")
+    @JsonView(Views.Compact.class)
     private LocalDate actualReturnDate;
     
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false)
+    @JsonView(Views.Compact.class)
     private RentalStatus status = RentalStatus.ACTIVE;
     
     @Column(name = "notes")
     private String notes;
     
+    // Late fee accrued so far while OVERDUE, refreshed by OverdueSweepJob
+    @Column(name = "accrued_late_fee", precision = 10, scale = 2)
+    private BigDecimal accruedLateFee = BigDecimal.ZERO;
+    
     @OneToOne(mappedBy = "rental", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore
     private Bill bill;
@@ -122,6 +137,14 @@ public class Rental {
         this.notes = notes;
     }
     
+    public BigDecimal getAccruedLateFee() {
+        return accruedLateFee;
+    }
+    
+    public void setAccruedLateFee(BigDecimal accruedLateFee) {
+        this.accruedLateFee = accruedLateFee;
+    }
+    
     public Bill getBill() {
         return bill;
     }
@@ -131,6 +154,6 @@ public class Rental {
     }
     
     public enum RentalStatus {
-        ACTIVE, RETURNED, OVERDUE, CANCELLED
+        RESERVED, ACTIVE, RETURNED, OVERDUE, CANCELLED
     }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.costumerental.billing.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// A rental change waiting to be billed, written in the same transaction as the change itself
+@Entity
+@Table(name = "rental_outbox")
+public class RentalOutboxEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rental_outbox_seq")
+    @SequenceGenerator(name = "rental_outbox_seq", sequenceName = "rental_outbox_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(name = "rental_id", nullable = false)
+    private Long rentalId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 20)
+    private EventType eventType;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    // Failed processing attempts; events reaching BillingOutboxWorker.MAX_ATTEMPTS are left for inspection
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+    
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+    
+    // Constructors
+    public RentalOutboxEvent() {}
+    
+    public RentalOutboxEvent(Long rentalId, EventType eventType) {
+        this.rentalId = rentalId;
+        this.eventType = eventType;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getRentalId() {
+        return rentalId;
+    }
+    
+    public void setRentalId(Long rentalId) {
+        this.rentalId = rentalId;
+    }
+    
+    public EventType getEventType() {
+        return eventType;
+    }
+    
+    public void setEventType(EventType eventType) {
+        this.eventType = eventType;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public Integer getAttempts() {
+        return attempts;
+    }
+    
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+    
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+    
+    public enum EventType {
+        RENTAL_CREATED, RENTAL_RETURNED
+    }
+}
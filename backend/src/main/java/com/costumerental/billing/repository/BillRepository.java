@@ -1,38 +1,97 @@
 package com.costumerental.billing.repository;
 
 import com.costumerental.billing.model.Bill;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BillRepository extends JpaRepository<Bill, Long> {
     
     Optional<Bill> findByRentalId(Long rentalId);
     
+    // Row lock for payments and fee changes: they adjust the daily revenue buckets relative to the bill's current
+    // state, so two of them on one bill must not both start from the same snapshot
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Bill b WHERE b.id = :id")
+    Optional<Bill> findByIdForUpdate(@Param("id") Long id);
+    
+    // uk_bills_rental_id makes this a no-op (returning 0) when the rental already has a bill
+    @Modifying
+    @Query(value = "INSERT INTO bills (rental_id, total_amount, late_fee, damage_fee, discount, bill_date, due_date, status) " +
+                   "VALUES (:rentalId, :totalAmount, :lateFee, 0, 0, :billDate, :dueDate, 'PENDING') " +
+                   "ON CONFLICT (rental_id) DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("rentalId") Long rentalId, 
+                       @Param("totalAmount") BigDecimal totalAmount, 
+                       @Param("lateFee") BigDecimal lateFee, 
+                       @Param("billDate") LocalDateTime billDate, 
+                       @Param("dueDate") LocalDateTime dueDate);
+    
+    List<Bill> findByIdGreaterThanOrderByIdAsc(Long after, Pageable pageable);
+    
     List<Bill> findByStatus(Bill.BillStatus status);
     
+    List<Bill> findByStatusAndIdGreaterThanOrderByIdAsc(Bill.BillStatus status, Long after, Pageable pageable);
+    
     @Query("SELECT b FROM Bill b WHERE b.rental.customer.id = :customerId")
     List<Bill> findByCustomerId(@Param("customerId") Long customerId);
     
+    @Query("SELECT b FROM Bill b WHERE b.rental.customer.id = :customerId AND b.id > :after ORDER BY b.id")
+    List<Bill> findByCustomerIdAfter(@Param("customerId") Long customerId, 
+                                    @Param("after") Long after, Pageable pageable);
+    
     @Query("SELECT b FROM Bill b WHERE b.status = :status AND b.dueDate < :currentDate")
     List<Bill> findOverdueBills(@Param("status") Bill.BillStatus status, 
                                @Param("currentDate") LocalDateTime currentDate);
     
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE bills SET status = 'OVERDUE' WHERE id IN (" +
+                   "SELECT id FROM bills WHERE status = 'PENDING' " +
+                   "AND due_date >= :fromDate AND due_date < :currentDate LIMIT :batchSize)",
+           nativeQuery = true)
+    int markOverdueBatch(@Param("fromDate") LocalDateTime fromDate, 
+                         @Param("currentDate") LocalDateTime currentDate,
+                         @Param("batchSize") int batchSize);
+    
     @Query("SELECT b FROM Bill b WHERE b.billDate BETWEEN :startDate AND :endDate")
     List<Bill> findByBillDateBetween(@Param("startDate") LocalDateTime startDate, 
                                     @Param("endDate") LocalDateTime endDate);
     
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT b FROM Bill b WHERE b.billDate BETWEEN :startDate AND :endDate ORDER BY b.id")
+    Stream<Bill> streamByBillDateBetween(@Param("startDate") LocalDateTime startDate, 
+                                        @Param("endDate") LocalDateTime endDate);
+    
     @Query("SELECT b FROM Bill b WHERE b.paidDate BETWEEN :startDate AND :endDate")
     List<Bill> findByPaidDateBetween(@Param("startDate") LocalDateTime startDate, 
                                     @Param("endDate") LocalDateTime endDate);
     
     @Query("SELECT SUM(b.totalAmount) FROM Bill b WHERE b.status = 'PAID' AND b.paidDate BETWEEN :startDate AND :endDate")
-    Double getTotalRevenueByDateRange(@Param("startDate") LocalDateTime startDate, 
-                                     @Param("endDate") LocalDateTime endDate);
+    BigDecimal getTotalRevenueByDateRange(@Param("startDate") LocalDateTime startDate, 
+                                         @Param("endDate") LocalDateTime endDate);
+    
+    // Half-open [startDate, endDate), for a partial day that ends where the first full bucket begins
+    @Query("SELECT SUM(b.totalAmount) FROM Bill b WHERE b.status = 'PAID' AND b.paidDate >= :startDate AND b.paidDate < :endDate")
+    BigDecimal getTotalRevenueFromUntil(@Param("startDate") LocalDateTime startDate, 
+                                       @Param("endDate") LocalDateTime endDate);
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package com.costumerental.billing.repository;
 
 import com.costumerental.billing.model.Costume;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,6 +13,14 @@ import java.util.List;
 @Repository
 public interface CostumeRepository extends JpaRepository<Costume, Long> {
     
+    // Must match the expression of idx_costumes_search in db/migration/V3__full_text_search_indexes.sql
+    String SEARCH_DOCUMENT =
+            "(setweight(to_tsvector('simple', coalesce(c.name, '')), 'A') || " +
+            "setweight(to_tsvector('simple', coalesce(c.category, '')), 'B') || " +
+            "setweight(to_tsvector('simple', coalesce(c.description, '')), 'C'))";
+    
+    List<Costume> findByIdGreaterThanOrderByIdAsc(Long after, Pageable pageable);
+    
     List<Costume> findByAvailable(Boolean available);
     
     List<Costume> findByCategory(String category);
@@ -23,6 +33,13 @@ public interface CostumeRepository extends JpaRepository<Costume, Long> {
            "LOWER(c.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
     List<Costume> findBySearchTerm(@Param("searchTerm") String searchTerm);
     
+    @Query(value = "SELECT c.* FROM costumes c " +
+                   "WHERE " + SEARCH_DOCUMENT + " @@ to_tsquery('simple', :query) " +
+                   "ORDER BY ts_rank(" + SEARCH_DOCUMENT + ", to_tsquery('simple', :query)) DESC, c.id " +
+                   "LIMIT :limit",
+           nativeQuery = true)
+    List<Costume> searchFullText(@Param("query") String query, @Param("limit") int limit);
+    
     List<Costume> findByCategoryAndAvailable(String category, Boolean available);
     
     List<Costume> findBySizeAndAvailable(String size, Boolean available);
@@ -35,4 +52,31 @@ public interface CostumeRepository extends JpaRepository<Costume, Long> {
     
     @Query("SELECT c FROM Costume c WHERE c.stockQuantity > 0")
     List<Costume> findCostumesWithStock();
+    
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Costume c SET c.activeRentalCount = c.activeRentalCount + :units, c.version = c.version + 1, " +
+           "c.available = CASE WHEN c.activeRentalCount + :units >= c.stockQuantity THEN false ELSE c.available END " +
+           "WHERE c.id = :id AND c.available = true AND c.activeRentalCount + :units <= c.stockQuantity")
+    int reserveUnits(@Param("id") Long id, @Param("units") int units);
+    
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Costume c SET c.activeRentalCount = c.activeRentalCount - 1, c.version = c.version + 1, " +
+           "c.available = CASE WHEN c.stockQuantity > 0 THEN true ELSE c.available END " +
+           "WHERE c.id = :id AND c.activeRentalCount > 0")
+    int releaseUnit(@Param("id") Long id);
+    
+    // Taken before reconcileActiveRentalCounts: every change to the number of ACTIVE/OVERDUE rentals also updates
+    // the costume row, so once these locks are held the count in the next statement cannot go stale
+    @Query(value = "SELECT id FROM costumes ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockAllForReconcile();
+    
+    // Only safe after lockAllForReconcile in the same transaction; under READ COMMITTED the subquery would
+    // otherwise keep the count from before a concurrent reserveUnits/releaseUnit it waited for
+    @Modifying
+    @Query(value = "UPDATE costumes c SET active_rental_count = x.units, version = c.version + 1 FROM (" +
+                   "SELECT c2.id, COUNT(r.id) AS units FROM costumes c2 LEFT JOIN rentals r " +
+                   "ON r.costume_id = c2.id AND r.status IN ('ACTIVE', 'OVERDUE') GROUP BY c2.id) x " +
+                   "WHERE c.id = x.id AND c.active_rental_count <> x.units",
+           nativeQuery = true)
+    int reconcileActiveRentalCounts();
 }
\ No newline at end of file
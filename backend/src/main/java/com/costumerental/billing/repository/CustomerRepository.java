@@ -1,6 +1,7 @@
 package com.costumerental.billing.repository;
 
 import com.costumerental.billing.model.Customer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,13 +13,64 @@ import java.util.Optional;
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
     
+    // Must match the expression of idx_customers_search in db/migration/V3__full_text_search_indexes.sql
+    String SEARCH_DOCUMENT =
+            "(setweight(to_tsvector('simple', coalesce(c.first_name, '')), 'A') || " +
+            "setweight(to_tsvector('simple', translate(coalesce(c.email, ''), '@.', '  ')), 'B') || " +
+            "setweight(to_tsvector('simple', regexp_replace(coalesce(c.phone, ''), '[^0-9]', '', 'g')), 'B'))";
+    
+    // Columns of one rental line in the customer summary, with its costume name and bill
+    String SUMMARY_RENTAL_LINE =
+            "SELECT r.id AS rental_id, r.costume_id, co.name AS costume_name, r.rental_date, r.expected_return_date, " +
+            "r.actual_return_date, r.status AS rental_status, r.accrued_late_fee, " +
+            "b.id AS bill_id, b.total_amount AS bill_total, b.status AS bill_status " +
+            "FROM rentals r JOIN costumes co ON co.id = r.costume_id LEFT JOIN bills b ON b.rental_id = r.id " +
+            "WHERE r.customer_id = c.id ";
+    
     Optional<Customer> findByEmail(String email);
     
+    @Query("SELECT c.email FROM Customer c WHERE c.email IS NOT NULL")
+    List<String> findAllEmails();
+    
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Long after, Pageable pageable);
+    
     @Query("SELECT c FROM Customer c WHERE " +
            "LOWER(c.firstName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(c.email) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(c.phone) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
     List<Customer> findBySearchTerm(@Param("searchTerm") String searchTerm);
     
+    @Query(value = "SELECT c.* FROM customers c " +
+                   "WHERE " + SEARCH_DOCUMENT + " @@ to_tsquery('simple', :query) " +
+                   "ORDER BY ts_rank(" + SEARCH_DOCUMENT + ", to_tsquery('simple', :query)) DESC, c.id " +
+                   "LIMIT :limit",
+           nativeQuery = true)
+    List<Customer> searchFullText(@Param("query") String query, @Param("limit") int limit);
+    
     List<Customer> findByFirstNameContainingIgnoreCase(String firstName);
+    
+    // Profile, totals over all rentals and bills, and the newest open and closed rentals of one customer in a
+    // single statement; one row per rental line (a single row with null line columns when there are none).
+    // Unpaid bills are looked up per rental through uk_bills_rental_id: joining bills by status let the planner
+    // hash a scan of every pending bill.
+    @Query(value = "SELECT c.id AS customer_id, c.first_name, c.email, c.phone, c.address, " +
+                   "t.rental_count, t.open_count, t.overdue_count, t.accrued_late_fees, t.unpaid_total, " +
+                   "x.* " +
+                   "FROM customers c " +
+                   "CROSS JOIN LATERAL (SELECT COUNT(*) AS rental_count, " +
+                   "COUNT(*) FILTER (WHERE r.status IN ('RESERVED', 'ACTIVE', 'OVERDUE')) AS open_count, " +
+                   "COUNT(*) FILTER (WHERE r.status = 'OVERDUE') AS overdue_count, " +
+                   "COALESCE(SUM(r.accrued_late_fee) FILTER (WHERE r.status = 'OVERDUE'), 0) AS accrued_late_fees, " +
+                   "COALESCE(SUM((SELECT b.total_amount FROM bills b " +
+                   "WHERE b.rental_id = r.id AND b.status IN ('PENDING', 'OVERDUE'))), 0) AS unpaid_total " +
+                   "FROM rentals r WHERE r.customer_id = c.id) t " +
+                   "LEFT JOIN LATERAL ((" + SUMMARY_RENTAL_LINE +
+                   "AND r.status IN ('RESERVED', 'ACTIVE', 'OVERDUE') ORDER BY r.id DESC LIMIT :openLimit) " +
+                   "UNION ALL (" + SUMMARY_RENTAL_LINE +
+                   "AND r.status IN ('RETURNED', 'CANCELLED') ORDER BY r.id DESC LIMIT :historyLimit)) x ON true " +
+                   "WHERE c.id = :customerId",
+           nativeQuery = true)
+    List<Object[]> findSummaryRows(@Param("customerId") Long customerId, 
+                                   @Param("openLimit") int openLimit, 
+                                   @Param("historyLimit") int historyLimit);
 }
\ No newline at end of file
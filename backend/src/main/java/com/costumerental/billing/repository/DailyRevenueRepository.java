@@ -0,0 +1,42 @@
+package com.costumerental.billing.repository;
+
+import com.costumerental.billing.model.DailyRevenue;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Repository
+public interface DailyRevenueRepository extends JpaRepository<DailyRevenue, LocalDate> {
+    
+    @Modifying
+    @Query(value = "INSERT INTO daily_revenue (revenue_date, total_amount, bill_count) " +
+                   "VALUES (:revenueDate, :amount, :billCount) " +
+                   "ON CONFLICT (revenue_date) DO UPDATE SET " +
+                   "total_amount = daily_revenue.total_amount + EXCLUDED.total_amount, " +
+                   "bill_count = daily_revenue.bill_count + EXCLUDED.bill_count",
+           nativeQuery = true)
+    int addRevenue(@Param("revenueDate") LocalDate revenueDate, 
+                   @Param("amount") BigDecimal amount, 
+                   @Param("billCount") long billCount);
+    
+    @Query("SELECT SUM(r.totalAmount) FROM DailyRevenue r WHERE r.revenueDate BETWEEN :startDate AND :endDate")
+    BigDecimal getTotalRevenueByDateRange(@Param("startDate") LocalDate startDate, 
+                                         @Param("endDate") LocalDate endDate);
+    
+    @Modifying
+    @Query(value = "DELETE FROM daily_revenue", nativeQuery = true)
+    int deleteAllBuckets();
+    
+    @Modifying
+    @Query(value = "INSERT INTO daily_revenue (revenue_date, total_amount, bill_count) " +
+                   "SELECT CAST(b.paid_date AS date), SUM(b.total_amount), COUNT(*) FROM bills b " +
+                   "WHERE b.status = 'PAID' AND b.paid_date IS NOT NULL " +
+                   "GROUP BY CAST(b.paid_date AS date)",
+           nativeQuery = true)
+    int rebuildFromBills();
+}
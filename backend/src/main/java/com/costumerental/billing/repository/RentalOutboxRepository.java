@@ -0,0 +1,31 @@
+package com.costumerental.billing.repository;
+
+import com.costumerental.billing.model.RentalOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RentalOutboxRepository extends JpaRepository<RentalOutboxEvent, Long> {
+    
+    // Oldest pending events, locked for the current transaction; rows locked by another worker are skipped
+    @Query(value = "SELECT * FROM rental_outbox WHERE attempts < :maxAttempts " +
+                   "ORDER BY id LIMIT :batchSize FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<RentalOutboxEvent> claimBatch(@Param("batchSize") int batchSize, @Param("maxAttempts") int maxAttempts);
+    
+    @Query("SELECT e FROM RentalOutboxEvent e WHERE e.attempts < :maxAttempts ORDER BY e.id")
+    List<RentalOutboxEvent> findPending(@Param("maxAttempts") int maxAttempts, Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE RentalOutboxEvent e SET e.attempts = e.attempts + 1, e.lastError = :error WHERE e.id = :id")
+    int recordFailure(@Param("id") Long id, @Param("error") String error);
+    
+    @Query("SELECT COUNT(e) FROM RentalOutboxEvent e WHERE e.attempts < :maxAttempts")
+    long countPending(@Param("maxAttempts") int maxAttempts);
+}
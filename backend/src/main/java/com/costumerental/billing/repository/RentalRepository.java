@@ -1,31 +1,118 @@
 package com.costumerental.billing.repository;
 
 import com.costumerental.billing.model.Rental;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface RentalRepository extends JpaRepository<Rental, Long> {
     
+    // List reads fetch customer, costume and bill in the same select instead of extra selects per row. The bill is the
+    // inverse side of a one-to-one, which Hibernate cannot proxy, so leaving it out of the graph costs one select per rental
+    @Override
+    @EntityGraph(attributePaths = {"customer", "costume", "bill"})
+    List<Rental> findAll();
+    
+    @EntityGraph(attributePaths = {"customer", "costume", "bill"})
+    List<Rental> findByIdGreaterThanOrderByIdAsc(Long after, Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"customer", "costume", "bill"})
     List<Rental> findByCustomerId(Long customerId);
     
+    // Rentals to bill, with the (otherwise one select per row) bill side of the one-to-one fetched too
+    @EntityGraph(attributePaths = {"customer", "costume", "bill"})
+    List<Rental> findByIdIn(Collection<Long> ids);
+    
+    @EntityGraph(attributePaths = {"customer", "costume", "bill"})
+    List<Rental> findByCustomerIdAndIdGreaterThanOrderByIdAsc(Long customerId, Long after, Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"customer", "costume", "bill"})
     List<Rental> findByCostumeId(Long costumeId);
     
+    @EntityGraph(attributePaths = {"customer", "costume", "bill"})
     List<Rental> findByStatus(Rental.RentalStatus status);
     
+    @EntityGraph(attributePaths = {"customer", "costume", "bill"})
+    List<Rental> findByStatusAndIdGreaterThanOrderByIdAsc(Rental.RentalStatus status, Long after, Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"customer", "costume", "bill"})
     @Query("SELECT r FROM Rental r WHERE r.status = :status AND r.expectedReturnDate < :currentDate")
     List<Rental> findOverdueRentals(@Param("status") Rental.RentalStatus status, 
                                    @Param("currentDate") LocalDate currentDate);
     
+    @EntityGraph(attributePaths = {"customer", "costume", "bill"})
+    List<Rental> findByStatusIn(Collection<Rental.RentalStatus> statuses);
+    
+    @EntityGraph(attributePaths = {"customer", "costume", "bill"})
+    List<Rental> findByStatusInAndIdGreaterThanOrderByIdAsc(Collection<Rental.RentalStatus> statuses, Long after, Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"customer", "costume", "bill"})
+    List<Rental> findByStatusAndExpectedReturnDateBetween(Rental.RentalStatus status, LocalDate from, LocalDate to);
+    
+    @EntityGraph(attributePaths = {"customer", "costume", "bill"})
+    List<Rental> findByStatusAndRentalDateLessThanEqualAndExpectedReturnDateBefore(Rental.RentalStatus status,
+                                                                                  LocalDate rentalDate, LocalDate expectedReturnDate);
+    
+    // Starts reservations whose rental date has arrived and takes their units from the costume stock counters
+    @Transactional
+    @Modifying
+    @Query(value = "WITH started AS (" +
+                   "UPDATE rentals SET status = CASE WHEN expected_return_date < :currentDate THEN 'OVERDUE' ELSE 'ACTIVE' END " +
+                   "WHERE status = 'RESERVED' AND rental_date <= :currentDate RETURNING costume_id) " +
+                   "UPDATE costumes c SET active_rental_count = c.active_rental_count + s.units, version = c.version + 1, " +
+                   "available = CASE WHEN c.active_rental_count + s.units >= c.stock_quantity THEN false ELSE c.available END " +
+                   "FROM (SELECT costume_id, COUNT(*) AS units FROM started GROUP BY costume_id) s WHERE c.id = s.costume_id",
+           nativeQuery = true)
+    int startDueReservations(@Param("currentDate") LocalDate currentDate);
+    
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE rentals SET status = 'OVERDUE' WHERE id IN (" +
+                   "SELECT id FROM rentals WHERE status = 'ACTIVE' " +
+                   "AND expected_return_date >= :fromDate AND expected_return_date < :currentDate LIMIT :batchSize)",
+           nativeQuery = true)
+    int markOverdueBatch(@Param("fromDate") LocalDate fromDate, 
+                         @Param("currentDate") LocalDate currentDate,
+                         @Param("batchSize") int batchSize);
+    
+    // Same formula as the late fee in BillingService: 50% of the sell price per day late
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE rentals r SET accrued_late_fee = " +
+                   "(CAST(:currentDate AS date) - r.expected_return_date) * c.sell_price * 0.5 " +
+                   "FROM costumes c WHERE c.id = r.costume_id AND r.status = 'OVERDUE'",
+           nativeQuery = true)
+    int updateAccruedLateFees(@Param("currentDate") LocalDate currentDate);
+    
+    @EntityGraph(attributePaths = {"customer", "costume", "bill"})
     @Query("SELECT r FROM Rental r WHERE r.rentalDate BETWEEN :startDate AND :endDate")
     List<Rental> findByRentalDateBetween(@Param("startDate") LocalDate startDate, 
                                         @Param("endDate") LocalDate endDate);
     
+    @EntityGraph(attributePaths = {"customer", "costume", "bill"})
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Rental r WHERE r.rentalDate BETWEEN :startDate AND :endDate ORDER BY r.id")
+    Stream<Rental> streamByRentalDateBetween(@Param("startDate") LocalDate startDate, 
+                                            @Param("endDate") LocalDate endDate);
+    
+    @EntityGraph(attributePaths = {"customer", "costume", "bill"})
     @Query("SELECT r FROM Rental r WHERE r.customer.id = :customerId AND r.status = :status")
     List<Rental> findByCustomerIdAndStatus(@Param("customerId") Long customerId, 
                                           @Param("status") Rental.RentalStatus status);
@@ -0,0 +1,134 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.model.Rental;
+import com.costumerental.billing.model.RentalOutboxEvent;
+import com.costumerental.billing.repository.RentalOutboxRepository;
+import com.costumerental.billing.repository.RentalRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Turns rental_outbox events into bills in batches, outside the checkout transactions that wrote them
+@Component
+public class BillingOutboxWorker {
+    
+    private static final Logger log = LoggerFactory.getLogger(BillingOutboxWorker.class);
+    
+    private static final int BATCH_SIZE = 200;
+    
+    // Events failing this often stay in the table with their last error instead of blocking the queue
+    public static final int MAX_ATTEMPTS = 5;
+    
+    @Autowired
+    private RentalOutboxRepository rentalOutboxRepository;
+    
+    @Autowired
+    private RentalRepository rentalRepository;
+    
+    @Autowired
+    private BillingService billingService;
+    
+    private final TransactionTemplate transactionTemplate;
+    
+    // billing.outbox.bills gives bills/sec as a rate, billing.outbox.batch the time per batch
+    private final Counter billsCreated;
+    
+    private final Timer batchTimer;
+    
+    private final AtomicLong backlog = new AtomicLong();
+    
+    public BillingOutboxWorker(PlatformTransactionManager transactionManager, MeterRegistry registry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.billsCreated = Counter.builder("billing.outbox.bills")
+                .description("Bills created from rental outbox events")
+                .register(registry);
+        this.batchTimer = Timer.builder("billing.outbox.batch")
+                .description("Time to claim, bill and delete one batch of outbox events")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        Gauge.builder("billing.outbox.backlog", backlog, AtomicLong::get)
+                .description("Outbox events waiting to be billed at the last poll")
+                .register(registry);
+    }
+    
+    @Scheduled(fixedDelayString = "${rental.billing.outbox-poll-ms:500}")
+    public void drain() {
+        int processed;
+        do {
+            processed = processBatch();
+        } while (processed == BATCH_SIZE);
+        backlog.set(rentalOutboxRepository.countPending(MAX_ATTEMPTS));
+    }
+    
+    // Returns the number of events taken off the outbox
+    private int processBatch() {
+        long start = System.nanoTime();
+        try {
+            int[] counts = transactionTemplate.execute(status -> {
+                List<RentalOutboxEvent> events = rentalOutboxRepository.claimBatch(BATCH_SIZE, MAX_ATTEMPTS);
+                if (events.isEmpty()) {
+                    return new int[] {0, 0};
+                }
+                // Events for deleted rentals simply disappear with the batch
+                List<Rental> rentals = rentalRepository.findByIdIn(
+                        events.stream().map(RentalOutboxEvent::getRentalId).distinct().toList());
+                int created = billingService.generateBills(rentals);
+                rentalOutboxRepository.deleteAllInBatch(events);
+                return new int[] {events.size(), created};
+            });
+            if (counts[0] > 0) {
+                billsCreated.increment(counts[1]);
+                batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            return counts[0];
+        } catch (RuntimeException e) {
+            log.warn("Outbox batch failed, retrying its events one at a time: {}",
+                     NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            return processIndividually();
+        }
+    }
+    
+    // Isolates the event that broke the batch: each event gets its own transaction and failures are recorded on it.
+    // Without the batch lock another worker may bill the same rental meanwhile, which the unique bill per rental absorbs
+    private int processIndividually() {
+        List<RentalOutboxEvent> events = rentalOutboxRepository.findPending(MAX_ATTEMPTS, PageRequest.of(0, BATCH_SIZE));
+        for (RentalOutboxEvent event : events) {
+            try {
+                Integer created = transactionTemplate.execute(status -> {
+                    int count = billingService.generateBills(rentalRepository.findByIdIn(List.of(event.getRentalId())));
+                    rentalOutboxRepository.deleteById(event.getId());
+                    return count;
+                });
+                billsCreated.increment(created != null ? created : 0);
+            } catch (RuntimeException e) {
+                String error = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                transactionTemplate.executeWithoutResult(status ->
+                        rentalOutboxRepository.recordFailure(event.getId(), truncate(error)));
+                log.warn("Could not bill rental {}: {}", event.getRentalId(), error);
+            }
+        }
+        // Anything short of a full batch ends this drain; failed events are retried on the next poll
+        return 0;
+    }
+    
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+}
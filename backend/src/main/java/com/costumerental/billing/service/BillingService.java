@@ -1,9 +1,12 @@
 package com.costumerental.billing.service;
 
+import com.costumerental.billing.dto.CursorPage;
 import com.costumerental.billing.model.Bill;
 import com.costumerental.billing.model.Rental;
 import com.costumerental.billing.repository.BillRepository;
+import com.costumerental.billing.repository.DailyRevenueRepository;
 import com.costumerental.billing.repository.RentalRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -11,11 +14,13 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 
 @Service
+@Timed(value = "billing.service", percentiles = {0.5, 0.95, 0.99})
 @Transactional
 public class BillingService {
     
@@ -25,13 +30,33 @@ public class BillingService {
     @Autowired
     private RentalRepository rentalRepository;
     
+    @Autowired
+    private DailyRevenueRepository dailyRevenueRepository;
+    
+    // Returns the rental's bill, creating it first unless one already exists
     public Bill generateBill(Rental rental) {
-        // Check if bill already exists for this rental
-        Optional<Bill> existingBill = billRepository.findByRentalId(rental.getId());
-        if (existingBill.isPresent()) {
-            return existingBill.get();
+        insertBill(buildBill(rental));
+        return billRepository.findByRentalId(rental.getId())
+                .orElseThrow(() -> new DomainException("Bill not found"));
+    }
+    
+    // Bills for a batch of rentals from the outbox; rentals already billed are skipped. Returns the number created
+    public int generateBills(List<Rental> rentals) {
+        int created = 0;
+        for (Rental rental : rentals) {
+            if (rental.getBill() == null) {
+                created += insertBill(buildBill(rental));
+            }
         }
-        
+        return created;
+    }
+    
+    private int insertBill(Bill bill) {
+        return billRepository.insertIfAbsent(bill.getRental().getId(), bill.getTotalAmount(), bill.getLateFee(),
+                                             bill.getBillDate(), bill.getDueDate());
+    }
+    
+    private Bill buildBill(Rental rental) {
         // Calculate rental days
         LocalDate endDate = rental.getActualReturnDate() != null ? 
                            rental.getActualReturnDate() : rental.getExpectedReturnDate();
@@ -61,13 +86,14 @@ public class BillingService {
         bill.setDueDate(LocalDateTime.now().plusDays(30)); // 30 days to pay
         bill.setStatus(Bill.BillStatus.PENDING);
         
-        return billRepository.save(bill);
+        return bill;
     }
     
     public Bill updateBillWithFees(Long billId, BigDecimal damageFee, BigDecimal discount, String notes) {
-        Bill bill = billRepository.findById(billId)
-                .orElseThrow(() -> new RuntimeException("Bill not found"));
+        Bill bill = billRepository.findByIdForUpdate(billId)
+                .orElseThrow(() -> new DomainException("Bill not found"));
         
+        BigDecimal previousTotal = bill.getTotalAmount();
         bill.setDamageFee(damageFee != null ? damageFee : BigDecimal.ZERO);
         bill.setDiscount(discount != null ? discount : BigDecimal.ZERO);
         bill.setNotes(notes);
@@ -78,41 +104,114 @@ public class BillingService {
         bill.setTotalAmount(baseAmount.add(bill.getLateFee()).add(bill.getDamageFee())
                            .subtract(bill.getDiscount()));
         
+        // Keep the daily revenue bucket in step when fees change on an already paid bill
+        if (bill.getStatus() == Bill.BillStatus.PAID && bill.getPaidDate() != null) {
+            dailyRevenueRepository.addRevenue(bill.getPaidDate().toLocalDate(),
+                                              bill.getTotalAmount().subtract(previousTotal), 0);
+        }
+        
         return billRepository.save(bill);
     }
     
     public Bill markBillAsPaid(Long billId, Bill.PaymentMethod paymentMethod) {
-        Bill bill = billRepository.findById(billId)
-                .orElseThrow(() -> new RuntimeException("Bill not found"));
+        Bill bill = billRepository.findByIdForUpdate(billId)
+                .orElseThrow(() -> new DomainException("Bill not found"));
+        
+        // Move the amount out of the old bucket if the bill was already paid on another day
+        if (bill.getStatus() == Bill.BillStatus.PAID && bill.getPaidDate() != null) {
+            dailyRevenueRepository.addRevenue(bill.getPaidDate().toLocalDate(), bill.getTotalAmount().negate(), -1);
+        }
         
         bill.setStatus(Bill.BillStatus.PAID);
         bill.setPaidDate(LocalDateTime.now());
         bill.setPaymentMethod(paymentMethod);
+        dailyRevenueRepository.addRevenue(bill.getPaidDate().toLocalDate(), bill.getTotalAmount(), 1);
         
         return billRepository.save(bill);
     }
     
+    @Transactional(readOnly = true)
     public List<Bill> getPendingBills() {
         return billRepository.findByStatus(Bill.BillStatus.PENDING);
     }
     
+    @Transactional(readOnly = true)
+    public CursorPage<Bill> getPendingBills(Long after, int limit) {
+        List<Bill> rows = billRepository.findByStatusAndIdGreaterThanOrderByIdAsc(
+                Bill.BillStatus.PENDING, CursorPage.start(after), CursorPage.window(limit));
+        return CursorPage.of(rows, limit, Bill::getId);
+    }
+    
+    // Bills are moved to OVERDUE by OverdueSweepJob, so this is a plain status lookup
+    @Transactional(readOnly = true)
     public List<Bill> getOverdueBills() {
-        return billRepository.findOverdueBills(Bill.BillStatus.PENDING, LocalDateTime.now());
+        return billRepository.findByStatus(Bill.BillStatus.OVERDUE);
+    }
+    
+    @Transactional(readOnly = true)
+    public CursorPage<Bill> getOverdueBills(Long after, int limit) {
+        List<Bill> rows = billRepository.findByStatusAndIdGreaterThanOrderByIdAsc(
+                Bill.BillStatus.OVERDUE, CursorPage.start(after), CursorPage.window(limit));
+        return CursorPage.of(rows, limit, Bill::getId);
     }
     
+    @Transactional(readOnly = true)
     public List<Bill> getBillsByCustomer(Long customerId) {
         return billRepository.findByCustomerId(customerId);
     }
     
-    public Double getTotalRevenue(LocalDateTime startDate, LocalDateTime endDate) {
-        Double revenue = billRepository.getTotalRevenueByDateRange(startDate, endDate);
-        return revenue != null ? revenue : 0.0;
+    @Transactional(readOnly = true)
+    public CursorPage<Bill> getBillsByCustomer(Long customerId, Long after, int limit) {
+        List<Bill> rows = billRepository.findByCustomerIdAfter(
+                customerId, CursorPage.start(after), CursorPage.window(limit));
+        return CursorPage.of(rows, limit, Bill::getId);
     }
     
+    @Transactional(readOnly = true)
+    public BigDecimal getTotalRevenue(LocalDateTime startDate, LocalDateTime endDate) {
+        if (startDate.isAfter(endDate)) {
+            return BigDecimal.ZERO;
+        }
+        
+        // Whole days inside the range come from the daily buckets, partial edge days from the bills themselves
+        LocalDate firstFullDay = startDate.toLocalTime().equals(LocalTime.MIDNIGHT) ?
+                                 startDate.toLocalDate() : startDate.toLocalDate().plusDays(1);
+        LocalDate lastFullDay = endDate.toLocalTime().equals(LocalTime.MAX) ?
+                                endDate.toLocalDate() : endDate.toLocalDate().minusDays(1);
+        if (firstFullDay.isAfter(lastFullDay)) {
+            return orZero(billRepository.getTotalRevenueByDateRange(startDate, endDate));
+        }
+        
+        BigDecimal fullDays = dailyRevenueRepository.getTotalRevenueByDateRange(firstFullDay, lastFullDay);
+        BigDecimal head = billRepository.getTotalRevenueFromUntil(startDate, firstFullDay.atStartOfDay());
+        BigDecimal tail = lastFullDay.atTime(LocalTime.MAX).isBefore(endDate) ?
+                          billRepository.getTotalRevenueByDateRange(lastFullDay.plusDays(1).atStartOfDay(), endDate) :
+                          null;
+        return orZero(fullDays).add(orZero(head)).add(orZero(tail));
+    }
+    
+    public int rebuildRevenueBuckets() {
+        dailyRevenueRepository.deleteAllBuckets();
+        return dailyRevenueRepository.rebuildFromBills();
+    }
+    
+    private BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+    
+    @Transactional(readOnly = true)
     public List<Bill> getAllBills() {
         return billRepository.findAll();
     }
     
+    @Transactional(readOnly = true)
+    public CursorPage<Bill> getAllBills(Long after, int limit) {
+        List<Bill> rows = billRepository.findByIdGreaterThanOrderByIdAsc(
+                CursorPage.start(after), CursorPage.window(limit));
+        return CursorPage.of(rows, limit, Bill::getId);
+    }
+    
+    @Transactional(readOnly = true)
     public Optional<Bill> getBillById(Long id) {
         return billRepository.findById(id);
     }
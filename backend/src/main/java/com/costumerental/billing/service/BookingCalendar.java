@@ -0,0 +1,97 @@
+package com.costumerental.billing.service;
+
+import java.time.LocalDate;
+
+/**
+ * Units booked per day for one costume, kept as a sparse segment tree over epoch days
+ * so booking a date range and finding the busiest day in a range both take O(log days).
+ */
+public class BookingCalendar {
+    
+    // Covers 1970-01-01 to 2328; dates outside are clamped to the ends
+    static final int DAYS = 1 << 17;
+    
+    // Bookings with no known end (overdue rentals) occupy every day up to here
+    static final int OPEN_END = DAYS - 1;
+    
+    private static class Node {
+        // Units added to this whole subtree, and the busiest day in it including that
+        private int add;
+        private int max;
+        private Node left;
+        private Node right;
+    }
+    
+    private final Node root = new Node();
+    
+    public static int day(LocalDate date) {
+        return (int) Math.max(0, Math.min(OPEN_END, date.toEpochDay()));
+    }
+    
+    public synchronized void add(int from, int to, int units) {
+        add(root, 0, OPEN_END, from, to, units);
+    }
+    
+    // Most units booked on any single day in [from, to]
+    public synchronized int peak(int from, int to) {
+        return peak(root, 0, OPEN_END, from, to);
+    }
+    
+    // Books units only if every day in [from, to] still has them free, in one step
+    public synchronized boolean tryAdd(int from, int to, int units, int capacity) {
+        if (peak(root, 0, OPEN_END, from, to) + units > capacity) {
+            return false;
+        }
+        add(root, 0, OPEN_END, from, to, units);
+        return true;
+    }
+    
+    // Moves one booked unit from [fromBefore, toBefore] to [from, to] in one step and says whether every day of the
+    // new range stayed within capacity. The move happens either way: it is for a unit that is already out.
+    public synchronized boolean move(int fromBefore, int toBefore, int from, int to, int capacity) {
+        add(root, 0, OPEN_END, fromBefore, toBefore, -1);
+        boolean fits = peak(root, 0, OPEN_END, from, to) < capacity;
+        add(root, 0, OPEN_END, from, to, 1);
+        return fits;
+    }
+    
+    private static void add(Node node, int lo, int hi, int from, int to, int units) {
+        if (from <= lo && hi <= to) {
+            node.add += units;
+            node.max += units;
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (from <= mid) {
+            if (node.left == null) node.left = new Node();
+            add(node.left, lo, mid, from, to, units);
+        }
+        if (to > mid) {
+            if (node.right == null) node.right = new Node();
+            add(node.right, mid + 1, hi, from, to, units);
+        }
+        node.max = node.add + Math.max(max(node.left), max(node.right));
+    }
+    
+    private static int peak(Node node, int lo, int hi, int from, int to) {
+        if (node == null) {
+            return 0;
+        }
+        if (from <= lo && hi <= to) {
+            return node.max;
+        }
+        int mid = (lo + hi) >>> 1;
+        int busiest = 0;
+        if (from <= mid) {
+            busiest = peak(node.left, lo, mid, from, to);
+        }
+        if (to > mid) {
+            busiest = Math.max(busiest, peak(node.right, mid + 1, hi, from, to));
+        }
+        return node.add + busiest;
+    }
+    
+    private static int max(Node node) {
+        return node == null ? 0 : node.max;
+    }
+}
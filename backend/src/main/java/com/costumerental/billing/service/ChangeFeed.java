@@ -0,0 +1,366 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.dto.ChangeEvent;
+import com.costumerental.billing.model.Costume;
+import com.costumerental.billing.model.Rental;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes committed costume, rental and customer changes to /changes subscribers as Server-Sent Events.
+ * Subscribers are async SseEmitters, so an idle connection holds no thread. Publishing only appends to a
+ * replay ring of the most recent events; each subscriber keeps its own position in the ring and is sent
+ * what it has not seen by one task at a time on a small sender pool. Writes block, so a client that stops
+ * reading ties up a sender once its TCP window is full: after rental.feed.send-timeout that subscriber is
+ * dropped and the pool gets an extra thread until the blocked write returns, so a stalled client delays the
+ * others by at most the send timeout. A client that falls a whole ring behind is disconnected and resumes
+ * with Last-Event-ID. Event ids are
+ * resume tokens ("epoch-sequence"): a reconnect gets the missed events replayed, or a reset event when
+ * they have left the ring or the server has restarted since.
+ */
+@Component
+public class ChangeFeed {
+    
+    public static final String CHANGE_EVENT = "change";
+    
+    public static final String RESET_EVENT = "reset";
+    
+    // Distinguishes tokens from before a restart, when sequence numbers start again at one
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+    
+    private static final Object PENDING_KEY = new Object();
+    
+    // Events sent per turn before a subscriber's task yields its sender thread to the others
+    private static final int SEND_BATCH = 256;
+    
+    // Marks a write that checkStalled has given up on
+    private static final long STALLED = -1;
+    
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+        private volatile boolean pingDue;
+        // Start of the write in progress (epoch millis), 0 between writes, STALLED once given up
+        private final AtomicLong sendingSince = new AtomicLong();
+        // Last sequence sent, and whether a reset is owed first; only touched by the subscriber's send task
+        private long sentSequence;
+        private boolean resetDue;
+        
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+    
+    private final ChangeEvent[] ring;
+    
+    private final long emitterTimeoutMillis;
+    
+    private final long sendTimeoutMillis;
+    
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    
+    // At most one queued or running task per subscriber, so the queue is bounded by the subscriber limit
+    private final ThreadPoolExecutor senders;
+    
+    private final int senderThreads;
+    
+    private final int maxStalledSenders;
+    
+    // Sender threads still blocked in a write to a subscriber given up as stalled; guarded by senders
+    private int stalledSenders;
+    
+    private final Counter stalledSubscribers;
+    
+    // Guarded by the ring
+    private long lastSequence;
+    
+    public ChangeFeed(@Value("${rental.feed.replay-size:4096}") int replaySize,
+                      @Value("${rental.feed.emitter-timeout:30m}") Duration emitterTimeout,
+                      @Value("${rental.feed.sender-threads:4}") int senderThreads,
+                      @Value("${rental.feed.max-subscribers:10000}") int maxSubscribers,
+                      @Value("${rental.feed.send-timeout:5s}") Duration sendTimeout,
+                      @Value("${rental.feed.max-stalled-senders:16}") int maxStalledSenders,
+                      MeterRegistry registry) {
+        this.ring = new ChangeEvent[replaySize];
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        this.sendTimeoutMillis = sendTimeout.toMillis();
+        this.senderThreads = senderThreads;
+        this.maxStalledSenders = maxStalledSenders;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Core threads do the sending; the headroom up to the maximum only replaces threads stuck on stalled clients
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads + maxStalledSenders, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxSubscribers),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "change-feed-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Gauge.builder("rental.feed.subscribers", subscribers, Set::size)
+                .description("Open /changes connections")
+                .register(registry);
+        this.stalledSubscribers = Counter.builder("rental.feed.stalled")
+                .description("Subscribers dropped because a write to them blocked for longer than rental.feed.send-timeout")
+                .register(registry);
+    }
+    
+    // The emitter times out after rental.feed.emitter-timeout; EventSource then reconnects with Last-Event-ID
+    public SseEmitter subscribe(String resumeToken) {
+        return subscribe(new SseEmitter(emitterTimeoutMillis), resumeToken);
+    }
+    
+    SseEmitter subscribe(SseEmitter emitter, String resumeToken) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> close(subscriber));
+        emitter.onTimeout(() -> close(subscriber));
+        emitter.onError(error -> close(subscriber));
+        synchronized (ring) {
+            subscriber.sentSequence = lastSequence;
+            if (resumeToken != null && !resumeToken.isBlank()) {
+                long from = parseSequence(resumeToken);
+                // Unknown epoch, a token from the future or events already overwritten in the ring: the client must reload
+                if (from < 0 || from > lastSequence || lastSequence - from > ring.length) {
+                    subscriber.resetDue = true;
+                } else {
+                    subscriber.sentSequence = from;
+                }
+            }
+        }
+        subscribers.add(subscriber);
+        schedule(subscriber);
+        return emitter;
+    }
+    
+    public void costumeStock(Costume costume) {
+        ChangeEvent event = new ChangeEvent(ChangeEvent.COSTUME, ChangeEvent.STOCK, costume.getId());
+        event.setAvailableStock(costume.getAvailableStock());
+        event.setAvailable(costume.getAvailable());
+        publish(event);
+    }
+    
+    public void rentalStatus(Rental rental) {
+        ChangeEvent event = new ChangeEvent(ChangeEvent.RENTAL, ChangeEvent.STATUS, rental.getId());
+        event.setStatus(rental.getStatus().name());
+        event.setCostumeId(rental.getCostume().getId());
+        event.setCustomerId(rental.getCustomer().getId());
+        publish(event);
+    }
+    
+    public void changed(String entity, String action, Long id) {
+        publish(new ChangeEvent(entity, action, id));
+    }
+    
+    // Many rows of one entity changed at once (sweeps, imports); clients reload that list
+    public void refresh(String entity) {
+        publish(new ChangeEvent(entity, ChangeEvent.REFRESH, null));
+    }
+    
+    // Events raised inside a transaction are only sent once it commits, in order
+    private void publish(ChangeEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            broadcast(List.of(event));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<ChangeEvent> pending = (List<ChangeEvent>) TransactionSynchronizationManager.getResource(PENDING_KEY);
+        if (pending == null) {
+            List<ChangeEvent> events = new ArrayList<>();
+            pending = events;
+            TransactionSynchronizationManager.bindResource(PENDING_KEY, events);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    broadcast(events);
+                }
+    
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_KEY);
+                }
+            });
+        }
+        pending.add(event);
+    }
+    
+    // Never blocks on a client: it only fills the ring and wakes the subscribers' send tasks
+    private void broadcast(List<ChangeEvent> events) {
+        synchronized (ring) {
+            for (ChangeEvent event : events) {
+                long sequence = ++lastSequence;
+                ring[(int) (sequence % ring.length)] = event;
+            }
+        }
+        subscribers.forEach(this::schedule);
+    }
+    
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.closed || !subscriber.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            senders.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            // More subscribers than the queue holds, or shutting down
+            close(subscriber);
+            subscriber.emitter.complete();
+        }
+    }
+    
+    private void drain(Subscriber subscriber) {
+        try {
+            send(subscriber);
+        } catch (IOException | IllegalStateException e) {
+            close(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        // Anything published after the last look is picked up by another turn
+        if (!subscriber.closed && (subscriber.pingDue || subscriber.resetDue || subscriber.sentSequence < currentSequence())) {
+            schedule(subscriber);
+        }
+    }
+    
+    private void send(Subscriber subscriber) throws IOException {
+        if (subscriber.resetDue) {
+            subscriber.sentSequence = currentSequence();
+            subscriber.resetDue = false;
+            write(subscriber, SseEmitter.event().name(RESET_EVENT).id(token(subscriber.sentSequence))
+                                        .data("{}", MediaType.APPLICATION_JSON));
+        }
+        List<ChangeEvent> batch = new ArrayList<>();
+        long from = subscriber.sentSequence;
+        boolean overrun;
+        // Only copies from the ring under its monitor; completing or writing to the emitter happens outside it
+        synchronized (ring) {
+            overrun = lastSequence - from > ring.length;
+            for (long sequence = from + 1; !overrun && sequence <= lastSequence && batch.size() < SEND_BATCH; sequence++) {
+                batch.add(ring[(int) (sequence % ring.length)]);
+            }
+        }
+        // Fell so far behind that unsent events were overwritten: disconnect, the client resumes with a reset
+        if (overrun) {
+            close(subscriber);
+            subscriber.emitter.complete();
+            return;
+        }
+        for (ChangeEvent event : batch) {
+            write(subscriber, event(subscriber.sentSequence + 1, event));
+            subscriber.sentSequence++;
+        }
+        if (subscriber.pingDue) {
+            subscriber.pingDue = false;
+            write(subscriber, SseEmitter.event().comment("ping"));
+        }
+    }
+    
+    private void write(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        long started = System.currentTimeMillis();
+        subscriber.sendingSince.set(started);
+        boolean stalled;
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            // checkStalled gave up on this write while it was blocked: hand back the extra thread it was lent
+            stalled = !subscriber.sendingSince.compareAndSet(started, 0);
+            if (stalled) {
+                resizeSenders(-1);
+            }
+        }
+        if (stalled) {
+            throw new IOException("Write blocked for more than " + sendTimeoutMillis + " ms");
+        }
+    }
+    
+    // A subscriber whose write has blocked past the send timeout is dropped, and its sender thread is replaced
+    // (up to rental.feed.max-stalled-senders) until the write returns, either because the client reads again or
+    // because the connection times out
+    @Scheduled(fixedDelayString = "${rental.feed.stall-check-ms:1000}")
+    public void checkStalled() {
+        long now = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers) {
+            long since = subscriber.sendingSince.get();
+            if (since > 0 && now - since > sendTimeoutMillis && subscriber.sendingSince.compareAndSet(since, STALLED)) {
+                close(subscriber);
+                stalledSubscribers.increment();
+                resizeSenders(1);
+            }
+        }
+    }
+    
+    private void resizeSenders(int delta) {
+        synchronized (senders) {
+            stalledSenders += delta;
+            senders.setCorePoolSize(senderThreads + Math.min(stalledSenders, maxStalledSenders));
+        }
+    }
+    
+    private long currentSequence() {
+        synchronized (ring) {
+            return lastSequence;
+        }
+    }
+    
+    private void close(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+    }
+    
+    private static SseEmitter.SseEventBuilder event(long sequence, ChangeEvent event) {
+        return SseEmitter.event().name(CHANGE_EVENT).id(token(sequence)).data(event, MediaType.APPLICATION_JSON);
+    }
+    
+    private static String token(long sequence) {
+        return EPOCH + "-" + sequence;
+    }
+    
+    private static long parseSequence(String token) {
+        int dash = token.lastIndexOf('-');
+        if (dash < 0 || !EPOCH.equals(token.substring(0, dash))) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(token.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    // Comment lines keep proxies from closing idle connections and reveal clients that went away
+    @Scheduled(fixedDelayString = "${rental.feed.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.pingDue = true;
+            schedule(subscriber);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        senders.shutdown();
+    }
+}
@@ -0,0 +1,206 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.config.ReplicaRoutingDataSource;
+import com.costumerental.billing.model.Rental;
+import com.costumerental.billing.repository.RentalRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// In-memory calendar of booked units per costume; bookings are checked and added atomically per costume,
+// so this assumes a single application instance, like CustomerSuggestIndex
+@Component
+public class CostumeAvailabilityIndex {
+    
+    private static final Logger log = LoggerFactory.getLogger(CostumeAvailabilityIndex.class);
+    
+    // Rentals that hold a unit on their dates
+    public static final List<Rental.RentalStatus> BOOKED_STATUSES =
+            List.of(Rental.RentalStatus.RESERVED, Rental.RentalStatus.ACTIVE, Rental.RentalStatus.OVERDUE);
+    
+    private static final int LOAD_BATCH_SIZE = 1000;
+    
+    private static final long LOAD_TIMEOUT_SECONDS = 60;
+    
+    public static class Booking {
+        private final Long costumeId;
+        private final int from;
+        private final int to;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile Long rentalId;
+        
+        private Booking(Long costumeId, int from, int to) {
+            this.costumeId = costumeId;
+            this.from = from;
+            this.to = to;
+        }
+    }
+    
+    private volatile ConcurrentHashMap<Long, BookingCalendar> calendars = new ConcurrentHashMap<>();
+    
+    private volatile ConcurrentHashMap<Long, Booking> bookingsByRental = new ConcurrentHashMap<>();
+    
+    // Requests are served before ApplicationReadyEvent, so bookings wait here until the calendars hold every rental
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    
+    @Autowired
+    private RentalRepository rentalRepository;
+    
+    // Loads into new maps and swaps them in, so the calendars are never seen half-built. Reads the primary: a lagging
+    // replica would leave out the latest bookings and let their units be booked twice.
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        ConcurrentHashMap<Long, BookingCalendar> newCalendars = new ConcurrentHashMap<>();
+        ConcurrentHashMap<Long, Booking> newBookings = new ConcurrentHashMap<>();
+        long after = 0L;
+        List<Rental> batch;
+        do {
+            long lastId = after;
+            batch = ReplicaRoutingDataSource.onPrimary(() -> rentalRepository.findByStatusInAndIdGreaterThanOrderByIdAsc(
+                    BOOKED_STATUSES, lastId, PageRequest.of(0, LOAD_BATCH_SIZE)));
+            for (Rental rental : batch) {
+                Booking booking = booking(rental.getCostume().getId(), rental.getRentalDate(), bookedUntil(rental));
+                booking.rentalId = rental.getId();
+                newCalendars.computeIfAbsent(booking.costumeId, id -> new BookingCalendar()).add(booking.from, booking.to, 1);
+                newBookings.put(rental.getId(), booking);
+            }
+            if (!batch.isEmpty()) {
+                after = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        calendars = newCalendars;
+        bookingsByRental = newBookings;
+        loaded.countDown();
+        log.info("Loaded {} bookings into availability index", newBookings.size());
+    }
+    
+    // Makes an overdue rental's booking open-ended, since it keeps its unit until returned. Returns false when that
+    // collides with reservations booked before it became overdue; it is extended anyway, as the unit is really out.
+    public boolean extendOverdue(Rental rental) {
+        awaitLoaded();
+        Booking booking = booking(rental.getCostume().getId(), rental.getRentalDate(), null);
+        booking.rentalId = rental.getId();
+        int stock = rental.getCostume().getStockQuantity();
+        BookingCalendar calendar = calendar(booking.costumeId);
+        Booking previous = bookingsByRental.get(rental.getId());
+        boolean fits;
+        if (previous == null) {
+            fits = calendar.tryAdd(booking.from, booking.to, 1, stock);
+            if (!fits) {
+                calendar.add(booking.from, booking.to, 1);
+            }
+        } else if (previous.to == BookingCalendar.OPEN_END) {
+            return true;
+        } else if (previous.released.compareAndSet(false, true)) {
+            fits = calendar.move(previous.from, previous.to, booking.from, booking.to, stock);
+        } else {
+            // Returned or cancelled meanwhile
+            return true;
+        }
+        bookingsByRental.put(rental.getId(), booking);
+        return fits;
+    }
+    
+    // Books one unit on [from, until] (until null means open-ended), or returns null if some day is fully booked.
+    // Inside a transaction the booking is released again if it rolls back.
+    public Booking tryBook(Long costumeId, LocalDate from, LocalDate until, int stock) {
+        awaitLoaded();
+        Booking booking = booking(costumeId, from, until);
+        if (!calendar(costumeId).tryAdd(booking.from, booking.to, 1, stock)) {
+            return null;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        release(booking);
+                    }
+                }
+            });
+        }
+        return booking;
+    }
+    
+    public void attach(Booking booking, Long rentalId) {
+        booking.rentalId = rentalId;
+        bookingsByRental.put(rentalId, booking);
+    }
+    
+    public void release(Booking booking) {
+        if (booking.released.compareAndSet(false, true)) {
+            calendar(booking.costumeId).add(booking.from, booking.to, -1);
+            if (booking.rentalId != null) {
+                bookingsByRental.remove(booking.rentalId, booking);
+            }
+        }
+    }
+    
+    // Frees a returned or cancelled rental's dates once its transaction commits
+    public void remove(Long rentalId) {
+        awaitLoaded();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    removeNow(rentalId);
+                }
+            });
+        } else {
+            removeNow(rentalId);
+        }
+    }
+    
+    public int freeUnits(Long costumeId, LocalDate from, LocalDate to, int stock) {
+        awaitLoaded();
+        BookingCalendar calendar = calendars.get(costumeId);
+        int peak = calendar == null ? 0 : calendar.peak(BookingCalendar.day(from), BookingCalendar.day(to));
+        return Math.max(0, stock - peak);
+    }
+    
+    // Overdue rentals keep their unit until returned, so they are booked with no end date
+    public static LocalDate bookedUntil(Rental rental) {
+        return rental.getStatus() == Rental.RentalStatus.OVERDUE ? null : rental.getExpectedReturnDate();
+    }
+    
+    private void removeNow(Long rentalId) {
+        Booking booking = bookingsByRental.get(rentalId);
+        if (booking != null) {
+            release(booking);
+        }
+    }
+    
+    private void awaitLoaded() {
+        try {
+            if (!loaded.await(LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Availability index is still loading");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the availability index", e);
+        }
+    }
+    
+    private BookingCalendar calendar(Long costumeId) {
+        return calendars.computeIfAbsent(costumeId, id -> new BookingCalendar());
+    }
+    
+    private static Booking booking(Long costumeId, LocalDate from, LocalDate until) {
+        int start = BookingCalendar.day(from);
+        int end = until == null ? BookingCalendar.OPEN_END : Math.max(start, BookingCalendar.day(until));
+        return new Booking(costumeId, start, end);
+    }
+}
@@ -0,0 +1,120 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.config.ReplicaRoutingDataSource;
+import com.costumerental.billing.dto.ChangeEvent;
+import com.costumerental.billing.dto.CostumeAvailability;
+import com.costumerental.billing.model.Costume;
+import com.costumerental.billing.repository.CostumeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class CostumeCatalogService {
+    
+    public static final String COSTUMES_CACHE = "costumes";
+    public static final String COSTUMES_BY_CATEGORY_CACHE = "costumesByCategory";
+    public static final String CATEGORIES_CACHE = "costumeCategories";
+    public static final String SIZES_CACHE = "costumeSizes";
+    
+    @Autowired
+    private CostumeRepository costumeRepository;
+    
+    @Autowired
+    private CostumeAvailabilityIndex availabilityIndex;
+    
+    @Autowired
+    private ChangeFeed changeFeed;
+    
+    // Cache loads read the primary: evictions happen when the primary commits, and a lagging replica
+    // would put the old rows straight back for the whole TTL. The cache holds the costume itself (Spring
+    // unwraps the Optional), and misses are not cached so that a costume created later is found.
+    @Cacheable(cacheNames = COSTUMES_CACHE, unless = "#result == null")
+    public Optional<Costume> findCostumeById(Long id) {
+        return ReplicaRoutingDataSource.onPrimary(() -> costumeRepository.findById(id));
+    }
+    
+    public Optional<CostumeAvailability> getAvailability(Long id, LocalDate from, LocalDate to) {
+        return costumeRepository.findById(id).map(costume -> availability(costume, from, to));
+    }
+    
+    // Costumes with at least one unit free on every day of the range, whether or not they are in stock today
+    public List<CostumeAvailability> getAvailableBetween(LocalDate from, LocalDate to) {
+        List<CostumeAvailability> result = new ArrayList<>();
+        for (Costume costume : costumeRepository.findCostumesWithStock()) {
+            CostumeAvailability availability = availability(costume, from, to);
+            if (availability.getFreeUnits() > 0) {
+                result.add(availability);
+            }
+        }
+        return result;
+    }
+    
+    @Cacheable(COSTUMES_BY_CATEGORY_CACHE)
+    public List<Costume> getCostumesByCategory(String category) {
+        return ReplicaRoutingDataSource.onPrimary(() -> costumeRepository.findByCategory(category));
+    }
+    
+    @Cacheable(CATEGORIES_CACHE)
+    public List<String> getCategories() {
+        return ReplicaRoutingDataSource.onPrimary(costumeRepository::findDistinctCategories);
+    }
+    
+    @Cacheable(SIZES_CACHE)
+    public List<String> getSizes() {
+        return ReplicaRoutingDataSource.onPrimary(costumeRepository::findDistinctSizes);
+    }
+    
+    @Caching(evict = {
+        @CacheEvict(cacheNames = COSTUMES_CACHE, key = "#result.id"),
+        @CacheEvict(cacheNames = COSTUMES_BY_CATEGORY_CACHE, allEntries = true),
+        @CacheEvict(cacheNames = CATEGORIES_CACHE, allEntries = true),
+        @CacheEvict(cacheNames = SIZES_CACHE, allEntries = true)
+    })
+    public Costume saveCostume(Costume costume) {
+        String action = costume.getId() == null ? ChangeEvent.CREATED : ChangeEvent.UPDATED;
+        Costume saved = costumeRepository.save(costume);
+        changeFeed.changed(ChangeEvent.COSTUME, action, saved.getId());
+        return saved;
+    }
+    
+    @Caching(evict = {
+        @CacheEvict(cacheNames = COSTUMES_CACHE, key = "#id"),
+        @CacheEvict(cacheNames = COSTUMES_BY_CATEGORY_CACHE, allEntries = true),
+        @CacheEvict(cacheNames = CATEGORIES_CACHE, allEntries = true),
+        @CacheEvict(cacheNames = SIZES_CACHE, allEntries = true)
+    })
+    public void deleteCostume(Long id) {
+        costumeRepository.deleteById(id);
+        changeFeed.changed(ChangeEvent.COSTUME, ChangeEvent.DELETED, id);
+    }
+    
+    @Caching(evict = {
+        @CacheEvict(cacheNames = COSTUMES_CACHE, allEntries = true),
+        @CacheEvict(cacheNames = COSTUMES_BY_CATEGORY_CACHE, allEntries = true),
+        @CacheEvict(cacheNames = CATEGORIES_CACHE, allEntries = true),
+        @CacheEvict(cacheNames = SIZES_CACHE, allEntries = true)
+    })
+    public void evictCatalog() {
+    }
+    
+    // Stock changes only affect the costume itself and the category listing it appears in
+    @Caching(evict = {
+        @CacheEvict(cacheNames = COSTUMES_CACHE, key = "#costume.id"),
+        @CacheEvict(cacheNames = COSTUMES_BY_CATEGORY_CACHE, key = "#costume.category")
+    })
+    public void evictStock(Costume costume) {
+    }
+    
+    private CostumeAvailability availability(Costume costume, LocalDate from, LocalDate to) {
+        int freeUnits = availabilityIndex.freeUnits(costume.getId(), from, to, costume.getStockQuantity());
+        return new CostumeAvailability(costume.getId(), costume.getName(), from, to, costume.getStockQuantity(), freeUnits);
+    }
+}
@@ -0,0 +1,130 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.config.ReplicaRoutingDataSource;
+import com.costumerental.billing.dto.CustomerSuggestion;
+import com.costumerental.billing.model.Customer;
+import com.costumerental.billing.repository.CustomerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+@Component
+public class CustomerSuggestIndex {
+    
+    private static final Logger log = LoggerFactory.getLogger(CustomerSuggestIndex.class);
+    
+    public static final int DEFAULT_LIMIT = 10;
+    
+    public static final int MAX_LIMIT = 50;
+    
+    private static final int LOAD_BATCH_SIZE = 1000;
+    
+    // Keys are "<normalized value>\0<customer id>" so one sorted set serves name, email and phone prefixes
+    private static final char SEPARATOR = '\u0000';
+    
+    private final ConcurrentSkipListSet<String> keys = new ConcurrentSkipListSet<>();
+    
+    private final ConcurrentHashMap<Long, CustomerSuggestion> entries = new ConcurrentHashMap<>();
+    
+    @Autowired
+    private CustomerRepository customerRepository;
+    
+    // Reads the primary, like the other startup loads, so customers created just before a restart are not missing
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long after = 0L;
+        List<Customer> batch;
+        do {
+            long lastId = after;
+            batch = ReplicaRoutingDataSource.onPrimary(() ->
+                    customerRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, LOAD_BATCH_SIZE)));
+            batch.forEach(this::put);
+            if (!batch.isEmpty()) {
+                after = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        log.info("Loaded {} customers into suggest index", entries.size());
+    }
+    
+    public void put(Customer customer) {
+        CustomerSuggestion entry = new CustomerSuggestion(customer.getId(), customer.getFirstName(),
+                                                          customer.getEmail(), customer.getPhone());
+        entries.compute(customer.getId(), (id, previous) -> {
+            if (previous != null) {
+                keys.removeAll(keysOf(previous));
+            }
+            keys.addAll(keysOf(entry));
+            return entry;
+        });
+    }
+    
+    public void remove(Long customerId) {
+        entries.computeIfPresent(customerId, (id, previous) -> {
+            keys.removeAll(keysOf(previous));
+            return null;
+        });
+    }
+    
+    public List<CustomerSuggestion> suggest(String query, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        Set<Long> ids = new LinkedHashSet<>();
+        collect(normalizeText(query), ids, size);
+        collect(normalizePhone(query), ids, size);
+        
+        List<CustomerSuggestion> suggestions = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            CustomerSuggestion entry = entries.get(id);
+            if (entry != null) {
+                suggestions.add(entry);
+            }
+        }
+        return suggestions;
+    }
+    
+    private void collect(String prefix, Set<Long> ids, int limit) {
+        if (prefix.isEmpty() || ids.size() >= limit) {
+            return;
+        }
+        for (String key : keys.subSet(prefix, true, prefix + Character.MAX_VALUE, false)) {
+            ids.add(Long.valueOf(key.substring(key.lastIndexOf(SEPARATOR) + 1)));
+            if (ids.size() >= limit) {
+                return;
+            }
+        }
+    }
+    
+    private List<String> keysOf(CustomerSuggestion entry) {
+        List<String> result = new ArrayList<>(3);
+        for (String value : new String[] {normalizeText(entry.getFirstName()), normalizeText(entry.getEmail()),
+                                          normalizePhone(entry.getPhone())}) {
+            if (!value.isEmpty()) {
+                result.add(value + SEPARATOR + entry.getId());
+            }
+        }
+        return result;
+    }
+    
+    private static String normalizeText(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    // Phone numbers are matched on digits only, so "555-12" and "55512" find the same customers
+    private static String normalizePhone(String value) {
+        if (value == null || !value.matches("[\\d\\s\\-().+]+")) {
+            return "";
+        }
+        return value.replaceAll("\\D", "");
+    }
+}
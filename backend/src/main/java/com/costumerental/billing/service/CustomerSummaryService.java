@@ -0,0 +1,86 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.dto.CustomerRentalLine;
+import com.costumerental.billing.dto.CustomerSummary;
+import com.costumerental.billing.model.Bill;
+import com.costumerental.billing.model.Customer;
+import com.costumerental.billing.model.Rental;
+import com.costumerental.billing.repository.CustomerRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@Timed(value = "customer.summary", percentiles = {0.5, 0.95, 0.99})
+@Transactional(readOnly = true)
+public class CustomerSummaryService {
+    
+    public static final int DEFAULT_HISTORY = 10;
+    
+    public static final int MAX_HISTORY = 50;
+    
+    // Keeps the payload bounded for customers with many open rentals; openRentalCount still has the full number
+    public static final int MAX_OPEN_RENTALS = 50;
+    
+    @Autowired
+    private CustomerRepository customerRepository;
+    
+    public Optional<CustomerSummary> getSummary(Long customerId, int history) {
+        int historyLimit = Math.max(0, Math.min(history, MAX_HISTORY));
+        List<Object[]> rows = customerRepository.findSummaryRows(customerId, MAX_OPEN_RENTALS, historyLimit);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        // Columns: customer 0-4, totals 5-9, rental line 10-20 (see CustomerRepository.findSummaryRows)
+        Object[] first = rows.get(0);
+        Customer customer = new Customer((String) first[1], (String) first[2], (String) first[3], (String) first[4]);
+        customer.setId(((Number) first[0]).longValue());
+        
+        CustomerSummary summary = new CustomerSummary(customer);
+        summary.setRentalCount(((Number) first[5]).longValue());
+        summary.setOpenRentalCount(((Number) first[6]).longValue());
+        summary.setOverdueCount(((Number) first[7]).longValue());
+        summary.setAccruedLateFees((BigDecimal) first[8]);
+        summary.setUnpaidBills((BigDecimal) first[9]);
+        summary.setOutstandingBalance(summary.getUnpaidBills().add(summary.getAccruedLateFees()));
+        
+        for (Object[] row : rows) {
+            if (row[10] == null) {
+                continue;
+            }
+            CustomerRentalLine line = new CustomerRentalLine(
+                    ((Number) row[10]).longValue(),
+                    ((Number) row[11]).longValue(),
+                    (String) row[12],
+                    toLocalDate(row[13]),
+                    toLocalDate(row[14]),
+                    toLocalDate(row[15]),
+                    Rental.RentalStatus.valueOf((String) row[16]),
+                    (BigDecimal) row[17],
+                    row[18] != null ? ((Number) row[18]).longValue() : null,
+                    (BigDecimal) row[19],
+                    row[20] != null ? Bill.BillStatus.valueOf((String) row[20]) : null);
+            if (line.getStatus() == Rental.RentalStatus.RETURNED || line.getStatus() == Rental.RentalStatus.CANCELLED) {
+                summary.getRecentRentals().add(line);
+            } else {
+                summary.getActiveRentals().add(line);
+            }
+        }
+        return Optional.of(summary);
+    }
+    
+    // Native queries hand back java.sql.Date or LocalDate depending on the Hibernate version
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        return (LocalDate) value;
+    }
+}
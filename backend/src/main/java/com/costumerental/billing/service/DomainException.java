@@ -0,0 +1,12 @@
+package com.costumerental.billing.service;
+
+// A request that breaks a business rule (unknown id, no stock, wrong rental state), which controllers answer with 4xx.
+// Anything else, such as a database failure, propagates as a 5xx so that clients and IdempotencyStore retry it.
+public class DomainException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public DomainException(String message) {
+        super(message);
+    }
+}
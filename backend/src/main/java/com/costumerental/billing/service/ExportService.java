@@ -0,0 +1,167 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.model.Bill;
+import com.costumerental.billing.model.Rental;
+import com.costumerental.billing.repository.BillRepository;
+import com.costumerental.billing.repository.RentalRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@Transactional(readOnly = true)
+public class ExportService {
+    
+    // Matches the fetch size hint on the streaming queries in BillRepository and RentalRepository
+    public static final int BATCH_SIZE = 500;
+    
+    private static final LocalDate MIN_DATE = LocalDate.of(1970, 1, 1);
+    private static final LocalDate MAX_DATE = LocalDate.of(9999, 12, 31);
+    
+    private static final String BILL_HEADER = "id,rental_id,total_amount,late_fee,damage_fee,discount,bill_date," +
+                                              "due_date,paid_date,status,payment_method,notes\n";
+    private static final String RENTAL_HEADER = "id,customer_id,customer_name,costume_id,costume_name,rental_date," +
+                                                "expected_return_date,actual_return_date,status,notes\n";
+    
+    public enum Format {
+        CSV("text/csv", "csv"), NDJSON("application/x-ndjson", "ndjson");
+        
+        private final String contentType;
+        private final String extension;
+        
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+        
+        public static Format from(String value) {
+            return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+        
+        public String getContentType() {
+            return contentType;
+        }
+        
+        public String getExtension() {
+            return extension;
+        }
+    }
+    
+    @Autowired
+    private BillRepository billRepository;
+    
+    @Autowired
+    private RentalRepository rentalRepository;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    // Set the download headers and return the (optionally gzip-compressed) response body stream
+    public static OutputStream open(HttpServletResponse response, String name, Format format, boolean gzip) throws IOException {
+        String fileName = name + "." + format.getExtension() + (gzip ? ".gz" : "");
+        response.setContentType(gzip ? "application/gzip" : format.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        OutputStream out = response.getOutputStream();
+        return gzip ? new GZIPOutputStream(out, 8192) : out;
+    }
+    
+    public void writeBills(OutputStream out, Format format, LocalDateTime startDate, LocalDateTime endDate) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write(BILL_HEADER);
+        }
+        try (Stream<Bill> bills = billRepository.streamByBillDateBetween(
+                startDate != null ? startDate : MIN_DATE.atStartOfDay(),
+                endDate != null ? endDate : MAX_DATE.atStartOfDay())) {
+            Iterator<Bill> iterator = bills.iterator();
+            int rows = 0;
+            while (iterator.hasNext()) {
+                Bill bill = iterator.next();
+                if (format == Format.CSV) {
+                    writeCsvRow(writer, bill.getId(), bill.getRental().getId(), bill.getTotalAmount(), bill.getLateFee(),
+                                bill.getDamageFee(), bill.getDiscount(), bill.getBillDate(), bill.getDueDate(),
+                                bill.getPaidDate(), bill.getStatus(), bill.getPaymentMethod(), bill.getNotes());
+                } else {
+                    writer.write(objectMapper.writeValueAsString(bill));
+                    writer.write('\n');
+                }
+                flushBatch(writer, ++rows);
+            }
+        }
+        writer.flush();
+    }
+    
+    public void writeRentals(OutputStream out, Format format, LocalDate startDate, LocalDate endDate) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write(RENTAL_HEADER);
+        }
+        try (Stream<Rental> rentals = rentalRepository.streamByRentalDateBetween(
+                startDate != null ? startDate : MIN_DATE,
+                endDate != null ? endDate : MAX_DATE)) {
+            Iterator<Rental> iterator = rentals.iterator();
+            int rows = 0;
+            while (iterator.hasNext()) {
+                Rental rental = iterator.next();
+                if (format == Format.CSV) {
+                    writeCsvRow(writer, rental.getId(), rental.getCustomer().getId(), rental.getCustomer().getFullName(),
+                                rental.getCostume().getId(), rental.getCostume().getName(), rental.getRentalDate(),
+                                rental.getExpectedReturnDate(), rental.getActualReturnDate(), rental.getStatus(),
+                                rental.getNotes());
+                } else {
+                    writer.write(objectMapper.writeValueAsString(rental));
+                    writer.write('\n');
+                }
+                flushBatch(writer, ++rows);
+            }
+        }
+        writer.flush();
+    }
+    
+    // Push each batch to the client and drop the exported entities so heap use stays flat
+    private void flushBatch(Writer writer, int rows) throws IOException {
+        if (rows % BATCH_SIZE == 0) {
+            writer.flush();
+            entityManager.clear();
+        }
+    }
+    
+    private void writeCsvRow(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] != null) {
+                writer.write(csvEscape(values[i].toString()));
+            }
+        }
+        writer.write('\n');
+    }
+    
+    private String csvEscape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
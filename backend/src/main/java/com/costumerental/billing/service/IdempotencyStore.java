@@ -0,0 +1,89 @@
+package com.costumerental.billing.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+// Remembers responses by Idempotency-Key so client retries replay the first result instead of running it again
+@Component
+public class IdempotencyStore {
+    
+    public static final String HEADER = "Idempotency-Key";
+    
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    
+    private static class Entry {
+        // The request parameters the key was first used with
+        private final String fingerprint;
+        private final CompletableFuture<ResponseEntity<?>> response = new CompletableFuture<>();
+        
+        private Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+    
+    // Bounded and expiring; lookups are hash lookups, so distinct keys never wait on each other
+    private final Cache<String, Entry> entries;
+    
+    public IdempotencyStore(@Value("${rental.idempotency.max-keys:10000}") long maxKeys,
+                            @Value("${rental.idempotency.ttl:24h}") Duration ttl) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+    
+    // Runs the action once per scope and key. A retry while the first request is still running waits for it;
+    // reusing a key with different parameters is rejected with 422. Without a key the action simply runs.
+    @SuppressWarnings("unchecked")
+    public <T> ResponseEntity<T> execute(String scope, String key, String fingerprint, Supplier<ResponseEntity<T>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        String cacheKey = scope + ' ' + key;
+        Entry entry = new Entry(fingerprint);
+        Entry existing = entries.asMap().putIfAbsent(cacheKey, entry);
+        if (existing != null) {
+            if (!Objects.equals(existing.fingerprint, fingerprint)) {
+                return ResponseEntity.unprocessableEntity().build();
+            }
+            return (ResponseEntity<T>) replay(existing);
+        }
+        
+        try {
+            ResponseEntity<T> response = action.get();
+            // Server errors are not remembered so the client can retry them
+            if (response.getStatusCode().is5xxServerError()) {
+                entries.asMap().remove(cacheKey, entry);
+            }
+            entry.response.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            entries.asMap().remove(cacheKey, entry);
+            entry.response.completeExceptionally(e);
+            throw e;
+        }
+    }
+    
+    private static ResponseEntity<?> replay(Entry entry) {
+        ResponseEntity<?> response;
+        try {
+            response = entry.response.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(response.getHeaders());
+        headers.set(REPLAYED_HEADER, "true");
+        return new ResponseEntity<>(response.getBody(), headers, response.getStatusCode());
+    }
+}
@@ -0,0 +1,311 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.dto.ChangeEvent;
+import com.costumerental.billing.dto.ImportResult;
+import com.costumerental.billing.model.Costume;
+import com.costumerental.billing.model.Customer;
+import com.costumerental.billing.repository.CostumeRepository;
+import com.costumerental.billing.repository.CustomerRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Service
+public class ImportService {
+    
+    static final int CHUNK_SIZE = 1000;
+    
+    @Autowired
+    private CostumeRepository costumeRepository;
+    
+    @Autowired
+    private CustomerRepository customerRepository;
+    
+    @Autowired
+    private CostumeCatalogService costumeCatalogService;
+    
+    @Autowired
+    private CustomerSuggestIndex customerSuggestIndex;
+    
+    @Autowired
+    private ChangeFeed changeFeed;
+    
+    @Autowired
+    private Validator validator;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    // Shared by all imports, each of which has at most one chunk in flight. When every writer is busy and the
+    // queue is full the request thread saves its own chunk, so concurrent imports slow down instead of piling up
+    private final ThreadPoolExecutor writers;
+    
+    public ImportService(@Value("${rental.import.writer-threads:4}") int writerThreads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.writers = new ThreadPoolExecutor(writerThreads, writerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(writerThreads),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "import-writer-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+    
+    // Columns: name, description, size, category, sellPrice, originalPrice, stockQuantity
+    public ImportResult importCostumes(InputStream in) throws IOException {
+        ImportResult result = runImport(in,
+                (columns, fields) -> new Costume(
+                        value(columns, fields, "name"),
+                        value(columns, fields, "description"),
+                        value(columns, fields, "size"),
+                        value(columns, fields, "category"),
+                        decimal(columns, fields, "sellPrice"),
+                        decimal(columns, fields, "originalPrice"),
+                        integer(columns, fields, "stockQuantity", 1)),
+                costume -> null,
+                costumeRepository::saveAll,
+                saved -> {},
+                failed -> {});
+        costumeCatalogService.evictCatalog();
+        changeFeed.refresh(ChangeEvent.COSTUME);
+        return result;
+    }
+    
+    // Columns: firstName, email, phone, address; rows whose email already exists are rejected
+    public ImportResult importCustomers(InputStream in) throws IOException {
+        // One query for all known emails instead of a findByEmail per row. A chunk's emails are claimed when it is
+        // checked and released again if its transaction rolls back, so later rows with those emails are kept
+        Set<String> emails = new HashSet<>(customerRepository.findAllEmails());
+        ImportResult result = runImport(in,
+                (columns, fields) -> new Customer(
+                        value(columns, fields, "firstName"),
+                        value(columns, fields, "email"),
+                        value(columns, fields, "phone"),
+                        value(columns, fields, "address")),
+                customer -> customer.getEmail() == null || emails.add(customer.getEmail()) ?
+                            null : "Customer with email " + customer.getEmail() + " already exists",
+                customerRepository::saveAll,
+                saved -> saved.forEach(customerSuggestIndex::put),
+                failed -> failed.forEach(customer -> emails.remove(customer.getEmail())));
+        changeFeed.refresh(ChangeEvent.CUSTOMER);
+        return result;
+    }
+    
+    @FunctionalInterface
+    private interface RowParser<T> {
+        T parse(Map<String, Integer> columns, List<String> fields);
+    }
+    
+    // Pipeline: the request thread parses and validates chunk N+1 (in parallel) while a writer thread saves chunk N
+    private <T> ImportResult runImport(InputStream in, RowParser<T> parser, Function<T, String> duplicateCheck,
+                                       Function<List<T>, List<T>> saver, Consumer<List<T>> afterSave,
+                                       Consumer<List<T>> afterFailure) throws IOException {
+        ImportResult result = new ImportResult();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            return result;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> header = parseCsvLine(headerLine);
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CompletableFuture<Void> pendingWrite = CompletableFuture.completedFuture(null);
+        int row = 1;
+        int totalRows = 0;
+        List<Integer> rows = new ArrayList<>(CHUNK_SIZE);
+        List<String> lines = new ArrayList<>(CHUNK_SIZE);
+        String line;
+        while (true) {
+            line = reader.readLine();
+            if (line != null) {
+                row++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                rows.add(row);
+                lines.add(line);
+                totalRows++;
+            }
+            if (lines.size() == CHUNK_SIZE || (line == null && !lines.isEmpty())) {
+                Object[] parsed = parseChunk(lines, columns, parser);
+                // At most one chunk is being written while the next is parsed. Duplicates are checked once that
+                // write is over, when the previous chunk has either committed or released its keys
+                pendingWrite.join();
+                ValidChunk<T> chunk = checkDuplicates(rows, parsed, duplicateCheck, result);
+                pendingWrite = CompletableFuture.runAsync(
+                        () -> writeChunk(chunk, transactionTemplate, saver, afterSave, afterFailure, result), writers);
+                rows = new ArrayList<>(CHUNK_SIZE);
+                lines = new ArrayList<>(CHUNK_SIZE);
+            }
+            if (line == null) {
+                break;
+            }
+        }
+        pendingWrite.join();
+        result.setTotalRows(totalRows);
+        return result;
+    }
+    
+    private static class ValidChunk<T> {
+        private final List<T> entities = new ArrayList<>();
+        private final List<Integer> rows = new ArrayList<>();
+    }
+    
+    // Each slot of the result holds either the parsed and validated entity or an error message
+    private <T> Object[] parseChunk(List<String> lines, Map<String, Integer> columns, RowParser<T> parser) {
+        Object[] parsed = new Object[lines.size()];
+        IntStream.range(0, lines.size()).parallel().forEach(i -> {
+            try {
+                T entity = parser.parse(columns, parseCsvLine(lines.get(i)));
+                Set<ConstraintViolation<T>> violations = validator.validate(entity);
+                parsed[i] = violations.isEmpty() ? entity : violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+            } catch (IllegalArgumentException e) {
+                parsed[i] = e.getMessage();
+            }
+        });
+        return parsed;
+    }
+    
+    // Duplicate checks run in file order so the first occurrence wins
+    @SuppressWarnings("unchecked")
+    private <T> ValidChunk<T> checkDuplicates(List<Integer> rows, Object[] parsed, Function<T, String> duplicateCheck,
+                                              ImportResult result) {
+        ValidChunk<T> chunk = new ValidChunk<>();
+        for (int i = 0; i < parsed.length; i++) {
+            if (parsed[i] instanceof String error) {
+                result.addError(rows.get(i), error);
+                continue;
+            }
+            T entity = (T) parsed[i];
+            String duplicate = duplicateCheck.apply(entity);
+            if (duplicate != null) {
+                result.addError(rows.get(i), duplicate);
+            } else {
+                chunk.entities.add(entity);
+                chunk.rows.add(rows.get(i));
+            }
+        }
+        return chunk;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdown();
+    }
+    
+    private <T> void writeChunk(ValidChunk<T> chunk, TransactionTemplate transactionTemplate,
+                                Function<List<T>, List<T>> saver, Consumer<List<T>> afterSave,
+                                Consumer<List<T>> afterFailure, ImportResult result) {
+        if (chunk.entities.isEmpty()) {
+            return;
+        }
+        try {
+            List<T> saved = transactionTemplate.execute(status -> saver.apply(chunk.entities));
+            afterSave.accept(saved);
+            result.addImported(saved.size());
+        } catch (RuntimeException e) {
+            String message = "Could not save row: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            chunk.rows.forEach(row -> result.addError(row, message));
+            afterFailure.accept(chunk.entities);
+        }
+    }
+    
+    private static String value(Map<String, Integer> columns, List<String> fields, String column) {
+        Integer index = columns.get(column.toLowerCase(Locale.ROOT));
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+    
+    private static BigDecimal decimal(Map<String, Integer> columns, List<String> fields, String column) {
+        String value = value(columns, fields, column);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+    
+    private static Integer integer(Map<String, Integer> columns, List<String> fields, String column, int defaultValue) {
+        String value = value(columns, fields, column);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+    
+    // Splits one CSV record, honouring double-quoted fields with "" escapes
+    private static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
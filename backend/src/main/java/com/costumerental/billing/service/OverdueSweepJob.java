@@ -0,0 +1,130 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.config.ReplicaRoutingDataSource;
+import com.costumerental.billing.dto.ChangeEvent;
+import com.costumerental.billing.model.Rental;
+import com.costumerental.billing.repository.BillRepository;
+import com.costumerental.billing.repository.RentalRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+public class OverdueSweepJob {
+    
+    private static final Logger log = LoggerFactory.getLogger(OverdueSweepJob.class);
+    
+    private static final int BATCH_SIZE = 1000;
+    
+    private static final LocalDate FIRST_SWEEP_FROM = LocalDate.of(1970, 1, 1);
+    
+    @Autowired
+    private RentalRepository rentalRepository;
+    
+    @Autowired
+    private BillRepository billRepository;
+    
+    @Autowired
+    private CostumeAvailabilityIndex availabilityIndex;
+    
+    @Autowired
+    private CostumeCatalogService costumeCatalogService;
+    
+    @Autowired
+    private ChangeFeed changeFeed;
+    
+    // High-water marks: everything due before these has already been swept (null until the first run)
+    private LocalDate rentalWatermark;
+    
+    private LocalDateTime billWatermark;
+    
+    private LocalDate lateFeesDate;
+    
+    // Guards the watermarks. Not a monitor: the sweep waits on JDBC, which would pin a virtual thread's carrier
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    
+    // A sweep started while another is still running (a direct call racing the scheduled one) is skipped rather
+    // than queued behind it; the running sweep already covers everything that is due
+    @Scheduled(fixedDelayString = "${rental.overdue.sweep-interval-ms:300000}")
+    public void sweep() {
+        if (!sweepLock.tryLock()) {
+            log.debug("Overdue sweep already running, skipping this one");
+            return;
+        }
+        try {
+            sweepDue();
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+    
+    private void sweepDue() {
+        LocalDate today = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now();
+        
+        // Only rentals and bills whose due date passed since the last sweep are scanned, in short batches
+        LocalDate rentalsFrom = rentalWatermark != null ? rentalWatermark : FIRST_SWEEP_FROM;
+        
+        // Reservations whose rental date arrived now hold a unit of stock; those already past their return date
+        // start straight as OVERDUE, which markOverdueBatch below never sees. The sweep reads the rows it is about to
+        // update or has just updated, so those reads go to the primary rather than a replica that may not have them yet.
+        List<Rental> startingOverdue = ReplicaRoutingDataSource.onPrimary(() ->
+                rentalRepository.findByStatusAndRentalDateLessThanEqualAndExpectedReturnDateBefore(
+                        Rental.RentalStatus.RESERVED, today, today));
+        boolean started = rentalRepository.startDueReservations(today) > 0;
+        if (started) {
+            costumeCatalogService.evictCatalog();
+            changeFeed.refresh(ChangeEvent.COSTUME);
+        }
+        
+        int overdueRentals = 0;
+        int marked;
+        do {
+            marked = rentalRepository.markOverdueBatch(rentalsFrom, today, BATCH_SIZE);
+            overdueRentals += marked;
+        } while (marked == BATCH_SIZE);
+        rentalWatermark = today;
+        
+        // Overdue rentals keep their unit until returned, so their bookings become open-ended
+        List<Rental> newlyOverdue = new ArrayList<>(startingOverdue);
+        if (overdueRentals > 0) {
+            newlyOverdue.addAll(ReplicaRoutingDataSource.onPrimary(() -> rentalRepository.findByStatusAndExpectedReturnDateBetween(
+                    Rental.RentalStatus.OVERDUE, rentalsFrom, today.minusDays(1))));
+        }
+        for (Rental rental : newlyOverdue) {
+            if (!availabilityIndex.extendOverdue(rental)) {
+                log.warn("Overdue rental {} overlaps reservations that fill costume {} after its return date",
+                         rental.getId(), rental.getCostume().getId());
+            }
+        }
+        if (started || overdueRentals > 0) {
+            changeFeed.refresh(ChangeEvent.RENTAL);
+        }
+        
+        // Late fees grow once per day, plus whenever new rentals became overdue
+        if (overdueRentals > 0 || !today.equals(lateFeesDate)) {
+            rentalRepository.updateAccruedLateFees(today);
+            lateFeesDate = today;
+        }
+        
+        LocalDateTime billsFrom = billWatermark != null ? billWatermark : FIRST_SWEEP_FROM.atStartOfDay();
+        int overdueBills = 0;
+        do {
+            marked = billRepository.markOverdueBatch(billsFrom, now, BATCH_SIZE);
+            overdueBills += marked;
+        } while (marked == BATCH_SIZE);
+        billWatermark = now;
+        
+        if (overdueRentals > 0 || overdueBills > 0) {
+            log.info("Marked {} rentals and {} bills as overdue", overdueRentals, overdueBills);
+        }
+    }
+}
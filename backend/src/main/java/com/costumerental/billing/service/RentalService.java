@@ -1,24 +1,44 @@
 package com.costumerental.billing.service;
 
+import com.costumerental.billing.dto.BulkRentalLine;
+import com.costumerental.billing.dto.BulkRentalResult;
+import com.costumerental.billing.dto.CursorPage;
 import com.costumerental.billing.model.Costume;
 import com.costumerental.billing.model.Customer;
 import com.costumerental.billing.model.Rental;
+import com.costumerental.billing.model.RentalOutboxEvent;
 import com.costumerental.billing.repository.CostumeRepository;
 import com.costumerental.billing.repository.CustomerRepository;
+import com.costumerental.billing.repository.RentalOutboxRepository;
 import com.costumerental.billing.repository.RentalRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.annotation.Isolation;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
+@Timed(value = "rental.service", percentiles = {0.5, 0.95, 0.99})
 @Transactional(isolation = Isolation.READ_COMMITTED, timeout = 30)
 public class RentalService {
     
+    // Rentals whose costume is still out with the customer
+    private static final List<Rental.RentalStatus> OUT_STATUSES =
+            List.of(Rental.RentalStatus.ACTIVE, Rental.RentalStatus.OVERDUE);
+    
     @Autowired
     private RentalRepository rentalRepository;
     
@@ -29,19 +49,27 @@ public class RentalService {
     private CostumeRepository costumeRepository;
     
     @Autowired
-    private BillingService billingService;
+    private RentalOutboxRepository rentalOutboxRepository;
+    
+    @Autowired
+    private CostumeCatalogService costumeCatalogService;
+    
+    @Autowired
+    private CostumeAvailabilityIndex availabilityIndex;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    @Autowired
+    private ChangeFeed changeFeed;
     
     public Rental createRental(Long customerId, Long costumeId, LocalDate rentalDate, 
                               LocalDate expectedReturnDate, String notes, Boolean generateBill) {
         Customer customer = customerRepository.findById(customerId)
-                .orElseThrow(() -> new RuntimeException("Customer not found"));
+                .orElseThrow(() -> new DomainException("Customer not found"));
         
         Costume costume = costumeRepository.findById(costumeId)
-                .orElseThrow(() -> new RuntimeException("Costume not found"));
-        
-        if (!costume.getAvailable() || costume.getAvailableStock() <= 0) {
-            throw new RuntimeException("Costume is not available for rental - no stock available");
-        }
+                .orElseThrow(() -> new DomainException("Costume not found"));
         
         Rental rental = new Rental();
         rental.setCustomer(customer);
@@ -49,73 +77,221 @@ public class RentalService {
         rental.setRentalDate(rentalDate);
         rental.setExpectedReturnDate(expectedReturnDate);
         rental.setNotes(notes);
-        rental.setStatus(Rental.RentalStatus.ACTIVE);
+        rental.setStatus(initialStatus(rentalDate, expectedReturnDate));
         
-        // Update costume availability based on remaining stock
-        if (costume.getAvailableStock() <= 1) {
-            costume.setAvailable(false);
+        // Every booking must fit the calendar, which also holds future reservations
+        CostumeAvailabilityIndex.Booking booking = availabilityIndex.tryBook(costumeId, rentalDate,
+                CostumeAvailabilityIndex.bookedUntil(rental), costume.getStockQuantity());
+        if (booking == null) {
+            throw new DomainException("Costume is not available for the requested dates");
+        }
+        
+        // Rentals starting now also take a unit with a single conditional UPDATE so concurrent bookings cannot oversell the last unit
+        if (rental.getStatus() != Rental.RentalStatus.RESERVED) {
+            if (costumeRepository.reserveUnits(costumeId, 1) == 0) {
+                throw new DomainException("Costume is not available for rental - no stock available");
+            }
+            entityManager.refresh(costume);
+            costumeCatalogService.evictStock(costume);
+            changeFeed.costumeStock(costume);
         }
-        costumeRepository.save(costume);
         
         rental = rentalRepository.save(rental);
+        availabilityIndex.attach(booking, rental.getId());
+        changeFeed.rentalStatus(rental);
         
-        // Generate bill for the rental only if requested
+        // Bill the rental only if requested; BillingOutboxWorker creates it after this transaction commits
         if (generateBill != null && generateBill) {
-            billingService.generateBill(rental);
+            rentalOutboxRepository.save(new RentalOutboxEvent(rental.getId(), RentalOutboxEvent.EventType.RENTAL_CREATED));
         }
         
         return rental;
     }
     
+    public List<BulkRentalResult> createRentals(List<BulkRentalLine> lines, Boolean generateBill) {
+        BulkRentalResult[] results = new BulkRentalResult[lines.size()];
+        
+        // Load every referenced customer and costume with one query each
+        Set<Long> customerIds = new HashSet<>();
+        Set<Long> costumeIds = new HashSet<>();
+        for (BulkRentalLine line : lines) {
+            if (line.getCustomerId() != null) customerIds.add(line.getCustomerId());
+            if (line.getCostumeId() != null) costumeIds.add(line.getCostumeId());
+        }
+        Map<Long, Customer> customers = customerRepository.findAllById(customerIds).stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+        Map<Long, Costume> costumes = costumeRepository.findAllById(costumeIds).stream()
+                .collect(Collectors.toMap(Costume::getId, Function.identity()));
+        
+        // Validate all lines in one pass against the calendar; lines starting now are also accepted per costume
+        // only up to its available stock, future-dated lines become reservations
+        CostumeAvailabilityIndex.Booking[] bookings = new CostumeAvailabilityIndex.Booking[lines.size()];
+        Map<Long, List<Integer>> acceptedByCostume = new LinkedHashMap<>();
+        List<Integer> reserved = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            BulkRentalLine line = lines.get(i);
+            Costume costume = costumes.get(line.getCostumeId());
+            if (!customers.containsKey(line.getCustomerId())) {
+                results[i] = BulkRentalResult.rejected(i, "Customer not found");
+            } else if (costume == null) {
+                results[i] = BulkRentalResult.rejected(i, "Costume not found");
+            } else if (line.getRentalDate() == null || line.getExpectedReturnDate() == null) {
+                results[i] = BulkRentalResult.rejected(i, "Rental date and expected return date are required");
+            } else {
+                Rental.RentalStatus status = initialStatus(line.getRentalDate(), line.getExpectedReturnDate());
+                LocalDate until = status == Rental.RentalStatus.OVERDUE ? null : line.getExpectedReturnDate();
+                List<Integer> accepted = acceptedByCostume.computeIfAbsent(costume.getId(), id -> new ArrayList<>());
+                if (status != Rental.RentalStatus.RESERVED &&
+                        (!costume.getAvailable() || accepted.size() >= costume.getAvailableStock())) {
+                    results[i] = BulkRentalResult.rejected(i, "Costume is not available for rental - no stock available");
+                } else {
+                    bookings[i] = availabilityIndex.tryBook(costume.getId(), line.getRentalDate(), until,
+                                                            costume.getStockQuantity());
+                    if (bookings[i] == null) {
+                        results[i] = BulkRentalResult.rejected(i, "Costume is not available for the requested dates");
+                    } else if (status == Rental.RentalStatus.RESERVED) {
+                        reserved.add(i);
+                    } else {
+                        accepted.add(i);
+                    }
+                }
+            }
+        }
+        
+        // Reserve each costume's units with a single conditional UPDATE, then insert the rentals together
+        List<Rental> rentals = new ArrayList<>();
+        List<Integer> rentalLines = new ArrayList<>();
+        for (Map.Entry<Long, List<Integer>> entry : acceptedByCostume.entrySet()) {
+            List<Integer> accepted = entry.getValue();
+            if (accepted.isEmpty()) {
+                continue;
+            }
+            Costume costume = costumes.get(entry.getKey());
+            if (costumeRepository.reserveUnits(costume.getId(), accepted.size()) == 0) {
+                accepted.forEach(i -> {
+                    availabilityIndex.release(bookings[i]);
+                    results[i] = BulkRentalResult.rejected(i, "Costume is not available for rental - no stock available");
+                });
+                continue;
+            }
+            entityManager.refresh(costume);
+            costumeCatalogService.evictStock(costume);
+            changeFeed.costumeStock(costume);
+            rentalLines.addAll(accepted);
+        }
+        rentalLines.addAll(reserved);
+        for (int i : rentalLines) {
+            BulkRentalLine line = lines.get(i);
+            Rental rental = new Rental(customers.get(line.getCustomerId()), costumes.get(line.getCostumeId()),
+                                       line.getRentalDate(), line.getExpectedReturnDate());
+            rental.setNotes(line.getNotes());
+            rental.setStatus(initialStatus(line.getRentalDate(), line.getExpectedReturnDate()));
+            rentals.add(rental);
+        }
+        
+        rentals = rentalRepository.saveAll(rentals);
+        
+        if (generateBill != null && generateBill) {
+            List<RentalOutboxEvent> events = new ArrayList<>(rentals.size());
+            for (Rental rental : rentals) {
+                events.add(new RentalOutboxEvent(rental.getId(), RentalOutboxEvent.EventType.RENTAL_CREATED));
+            }
+            rentalOutboxRepository.saveAll(events);
+        }
+        
+        for (int r = 0; r < rentals.size(); r++) {
+            int i = rentalLines.get(r);
+            availabilityIndex.attach(bookings[i], rentals.get(r).getId());
+            changeFeed.rentalStatus(rentals.get(r));
+            results[i] = BulkRentalResult.created(i, rentals.get(r).getId());
+        }
+        return Arrays.asList(results);
+    }
+    
     public Rental returnCostume(Long rentalId, LocalDate actualReturnDate) {
         Rental rental = rentalRepository.findById(rentalId)
-                .orElseThrow(() -> new RuntimeException("Rental not found"));
+                .orElseThrow(() -> new DomainException("Rental not found"));
         
-        if (rental.getStatus() != Rental.RentalStatus.ACTIVE) {
-            throw new RuntimeException("Rental is not active");
+        if (!OUT_STATUSES.contains(rental.getStatus())) {
+            throw new DomainException("Rental is not active");
         }
         
         rental.setActualReturnDate(actualReturnDate);
         rental.setStatus(Rental.RentalStatus.RETURNED);
         
-        // Update costume availability when returned
-        Costume costume = rental.getCostume();
-        if (costume.getStockQuantity() > 0) {
-            costume.setAvailable(true);
-        }
-        costumeRepository.save(costume);
-        
         rental = rentalRepository.save(rental);
+        availabilityIndex.remove(rental.getId());
+        
+        // Release the reserved unit and update costume availability when returned
+        costumeRepository.releaseUnit(rental.getCostume().getId());
+        entityManager.refresh(rental.getCostume());
+        costumeCatalogService.evictStock(rental.getCostume());
+        changeFeed.costumeStock(rental.getCostume());
+        changeFeed.rentalStatus(rental);
         
-        // Generate bill for the rental
-        billingService.generateBill(rental);
+        // Bill the rental once this transaction commits (a rental billed at creation keeps that bill)
+        rentalOutboxRepository.save(new RentalOutboxEvent(rental.getId(), RentalOutboxEvent.EventType.RENTAL_RETURNED));
         
         return rental;
     }
     
+    @Transactional(readOnly = true)
     public List<Rental> getActiveRentals() {
-        return rentalRepository.findByStatus(Rental.RentalStatus.ACTIVE);
+        return rentalRepository.findByStatusIn(OUT_STATUSES);
+    }
+    
+    @Transactional(readOnly = true)
+    public CursorPage<Rental> getActiveRentals(Long after, int limit) {
+        List<Rental> rows = rentalRepository.findByStatusInAndIdGreaterThanOrderByIdAsc(
+                OUT_STATUSES, CursorPage.start(after), CursorPage.window(limit));
+        return CursorPage.of(rows, limit, Rental::getId);
     }
     
+    // Rentals are moved to OVERDUE by OverdueSweepJob, so this is a plain status lookup
+    @Transactional(readOnly = true)
     public List<Rental> getOverdueRentals() {
-        return rentalRepository.findOverdueRentals(Rental.RentalStatus.ACTIVE, LocalDate.now());
+        return rentalRepository.findByStatus(Rental.RentalStatus.OVERDUE);
+    }
+    
+    @Transactional(readOnly = true)
+    public CursorPage<Rental> getOverdueRentals(Long after, int limit) {
+        List<Rental> rows = rentalRepository.findByStatusAndIdGreaterThanOrderByIdAsc(
+                Rental.RentalStatus.OVERDUE, CursorPage.start(after), CursorPage.window(limit));
+        return CursorPage.of(rows, limit, Rental::getId);
     }
     
+    @Transactional(readOnly = true)
     public List<Rental> getRentalsByCustomer(Long customerId) {
         return rentalRepository.findByCustomerId(customerId);
     }
     
+    @Transactional(readOnly = true)
+    public CursorPage<Rental> getRentalsByCustomer(Long customerId, Long after, int limit) {
+        List<Rental> rows = rentalRepository.findByCustomerIdAndIdGreaterThanOrderByIdAsc(
+                customerId, CursorPage.start(after), CursorPage.window(limit));
+        return CursorPage.of(rows, limit, Rental::getId);
+    }
+    
+    @Transactional(readOnly = true)
     public List<Rental> getAllRentals() {
         return rentalRepository.findAll();
     }
     
+    @Transactional(readOnly = true)
+    public CursorPage<Rental> getAllRentals(Long after, int limit) {
+        List<Rental> rows = rentalRepository.findByIdGreaterThanOrderByIdAsc(
+                CursorPage.start(after), CursorPage.window(limit));
+        return CursorPage.of(rows, limit, Rental::getId);
+    }
+    
+    @Transactional(readOnly = true)
     public Optional<Rental> getRentalById(Long id) {
         return rentalRepository.findById(id);
     }
     
     public Rental updateRentalNotes(Long rentalId, String notes) {
         Rental rental = rentalRepository.findById(rentalId)
-                .orElseThrow(() -> new RuntimeException("Rental not found"));
+                .orElseThrow(() -> new DomainException("Rental not found"));
         
         rental.setNotes(notes);
         return rentalRepository.save(rental);
@@ -123,21 +299,37 @@ public class RentalService {
     
     public Rental cancelRental(Long rentalId) {
         Rental rental = rentalRepository.findById(rentalId)
-                .orElseThrow(() -> new RuntimeException("Rental not found"));
+                .orElseThrow(() -> new DomainException("Rental not found"));
         
-        if (rental.getStatus() != Rental.RentalStatus.ACTIVE) {
-            throw new RuntimeException("Only active rentals can be cancelled");
+        Rental.RentalStatus previousStatus = rental.getStatus();
+        if (previousStatus != Rental.RentalStatus.RESERVED && !OUT_STATUSES.contains(previousStatus)) {
+            throw new DomainException("Only active or reserved rentals can be cancelled");
         }
         
         rental.setStatus(Rental.RentalStatus.CANCELLED);
         
-        // Update costume availability when cancelled
-        Costume costume = rental.getCostume();
-        if (costume.getStockQuantity() > 0) {
-            costume.setAvailable(true);
+        rental = rentalRepository.save(rental);
+        availabilityIndex.remove(rental.getId());
+        
+        // Release the reserved unit and update costume availability when cancelled; reservations never took one
+        if (previousStatus != Rental.RentalStatus.RESERVED) {
+            costumeRepository.releaseUnit(rental.getCostume().getId());
+            entityManager.refresh(rental.getCostume());
+            costumeCatalogService.evictStock(rental.getCostume());
+            changeFeed.costumeStock(rental.getCostume());
         }
-        costumeRepository.save(costume);
+        changeFeed.rentalStatus(rental);
         
-        return rentalRepository.save(rental);
+        return rental;
+    }
+    
+    // Future-dated rentals are reservations until OverdueSweepJob starts them; back-dated rentals are already
+    // overdue, since OverdueSweepJob only looks at newly passed return dates
+    private Rental.RentalStatus initialStatus(LocalDate rentalDate, LocalDate expectedReturnDate) {
+        LocalDate today = LocalDate.now();
+        if (rentalDate.isAfter(today)) {
+            return Rental.RentalStatus.RESERVED;
+        }
+        return expectedReturnDate.isBefore(today) ? Rental.RentalStatus.OVERDUE : Rental.RentalStatus.ACTIVE;
     }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.model.Costume;
+import com.costumerental.billing.model.Customer;
+import com.costumerental.billing.repository.CostumeRepository;
+import com.costumerental.billing.repository.CustomerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+@Service
+@Transactional(readOnly = true)
+public class SearchService {
+    
+    public static final int DEFAULT_LIMIT = 50;
+    
+    public static final int MAX_LIMIT = 200;
+    
+    @Autowired
+    private CostumeRepository costumeRepository;
+    
+    @Autowired
+    private CustomerRepository customerRepository;
+    
+    public List<Costume> searchCostumes(String term, int limit) {
+        String query = toPrefixQuery(term);
+        if (query.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return costumeRepository.searchFullText(query, clamp(limit));
+    }
+    
+    public List<Customer> searchCustomers(String term, int limit) {
+        String query = toPrefixQuery(term);
+        if (query.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return customerRepository.searchFullText(query, clamp(limit));
+    }
+    
+    // Turn free text into a tsquery where every token must match as a prefix, e.g. "vamp cap" -> "vamp:* & cap:*"
+    static String toPrefixQuery(String term) {
+        if (term == null) {
+            return "";
+        }
+        // Join digit groups so "555-12" matches the digits-only phone lexeme
+        String normalized = term.toLowerCase(Locale.ROOT).replaceAll("(?<=\\d)[\\s\\-().+]+(?=\\d)", "");
+        List<String> tokens = new ArrayList<>();
+        for (String token : normalized.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token + ":*");
+            }
+        }
+        return String.join(" & ", tokens);
+    }
+    
+    private int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+}
@@ -0,0 +1,48 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.dto.ChangeEvent;
+import com.costumerental.billing.repository.CostumeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Component
+public class StockReconciliationJob {
+    
+    private static final Logger log = LoggerFactory.getLogger(StockReconciliationJob.class);
+    
+    @Autowired
+    private CostumeRepository costumeRepository;
+    
+    @Autowired
+    private CostumeCatalogService costumeCatalogService;
+    
+    @Autowired
+    private ChangeFeed changeFeed;
+    
+    private final TransactionTemplate transactionTemplate;
+    
+    public StockReconciliationJob(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    // Rebuild costumes.active_rental_count from the rentals table in case the counter has drifted
+    @Scheduled(cron = "${rental.stock.reconcile-cron:0 0 3 * * *}")
+    public int reconcileActiveRentalCounts() {
+        Integer updated = transactionTemplate.execute(status -> {
+            costumeRepository.lockAllForReconcile();
+            return costumeRepository.reconcileActiveRentalCounts();
+        });
+        // Cached costumes would otherwise show the drifted counts until they expire
+        if (updated != null && updated > 0) {
+            costumeCatalogService.evictCatalog();
+            changeFeed.refresh(ChangeEvent.COSTUME);
+        }
+        log.info("Reconciled active rental counts for {} costumes", updated);
+        return updated != null ? updated : 0;
+    }
+}
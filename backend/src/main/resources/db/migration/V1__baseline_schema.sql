@@ -0,0 +1,53 @@
+-- Baseline: the schema Hibernate created with ddl-auto=update before versioned migrations.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate) and only run V2 onwards,
+-- so every later script is written to be safe on a database that already had the old ad-hoc script applied.
+
+CREATE TABLE IF NOT EXISTS customers (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    first_name VARCHAR(100) NOT NULL,
+    email VARCHAR(255),
+    phone VARCHAR(15),
+    address VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS costumes (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    description VARCHAR(500),
+    size VARCHAR(10) NOT NULL,
+    category VARCHAR(50) NOT NULL,
+    sell_price NUMERIC(10,2) NOT NULL,
+    original_price NUMERIC(10,2) NOT NULL,
+    available BOOLEAN NOT NULL,
+    stock_quantity INTEGER NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS rentals (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    customer_id BIGINT NOT NULL REFERENCES customers (id),
+    costume_id BIGINT NOT NULL REFERENCES costumes (id),
+    rental_date DATE NOT NULL,
+    expected_return_date DATE NOT NULL,
+    actual_return_date DATE,
+    status VARCHAR(255) NOT NULL
+        CONSTRAINT rentals_status_check CHECK (status IN ('ACTIVE', 'RETURNED', 'OVERDUE', 'CANCELLED')),
+    notes VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS bills (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    rental_id BIGINT NOT NULL REFERENCES rentals (id),
+    total_amount NUMERIC(10,2) NOT NULL,
+    late_fee NUMERIC(10,2),
+    damage_fee NUMERIC(10,2),
+    discount NUMERIC(10,2),
+    bill_date TIMESTAMP(6) NOT NULL,
+    due_date TIMESTAMP(6),
+    paid_date TIMESTAMP(6),
+    status VARCHAR(255) NOT NULL
+        CONSTRAINT bills_status_check CHECK (status IN ('PENDING', 'PAID', 'OVERDUE', 'CANCELLED')),
+    payment_method VARCHAR(255)
+        CONSTRAINT bills_payment_method_check
+        CHECK (payment_method IN ('CASH', 'CREDIT_CARD', 'DEBIT_CARD', 'BANK_TRANSFER', 'PAYPAL')),
+    notes VARCHAR(255)
+);
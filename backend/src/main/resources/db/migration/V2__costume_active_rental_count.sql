@@ -0,0 +1,10 @@
+-- Stock counter maintained by the reserve/release queries in CostumeRepository
+ALTER TABLE costumes ADD COLUMN IF NOT EXISTS active_rental_count INTEGER DEFAULT 0;
+
+UPDATE costumes c SET active_rental_count =
+    (SELECT COUNT(*) FROM rentals r WHERE r.costume_id = c.id AND r.status IN ('ACTIVE', 'OVERDUE'));
+
+ALTER TABLE costumes ALTER COLUMN active_rental_count SET NOT NULL;
+
+-- Late fee accrued so far on overdue rentals, refreshed by OverdueSweepJob
+ALTER TABLE rentals ADD COLUMN IF NOT EXISTS accrued_late_fee NUMERIC(10,2) DEFAULT 0;
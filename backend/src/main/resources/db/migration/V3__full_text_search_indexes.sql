@@ -0,0 +1,13 @@
+-- The indexed expressions must stay identical to SEARCH_DOCUMENT in CostumeRepository and CustomerRepository
+
+CREATE INDEX IF NOT EXISTS idx_costumes_search ON costumes USING GIN (
+    (setweight(to_tsvector('simple', coalesce(name, '')), 'A') ||
+     setweight(to_tsvector('simple', coalesce(category, '')), 'B') ||
+     setweight(to_tsvector('simple', coalesce(description, '')), 'C'))
+);
+
+CREATE INDEX IF NOT EXISTS idx_customers_search ON customers USING GIN (
+    (setweight(to_tsvector('simple', coalesce(first_name, '')), 'A') ||
+     setweight(to_tsvector('simple', translate(coalesce(email, ''), '@.', '  ')), 'B') ||
+     setweight(to_tsvector('simple', regexp_replace(coalesce(phone, ''), '[^0-9]', '', 'g')), 'B'))
+);
@@ -0,0 +1,14 @@
+-- Daily revenue buckets kept up to date by BillingService (rebuild at runtime with POST /api/bills/revenue/rebuild)
+CREATE TABLE IF NOT EXISTS daily_revenue (
+    revenue_date DATE PRIMARY KEY,
+    total_amount NUMERIC(14,2) NOT NULL DEFAULT 0,
+    bill_count BIGINT NOT NULL DEFAULT 0
+);
+
+DELETE FROM daily_revenue;
+
+INSERT INTO daily_revenue (revenue_date, total_amount, bill_count)
+SELECT CAST(paid_date AS date), SUM(total_amount), COUNT(*)
+FROM bills
+WHERE status = 'PAID' AND paid_date IS NOT NULL
+GROUP BY CAST(paid_date AS date);
@@ -0,0 +1,16 @@
+-- Entity ids come from sequences handing out blocks of 50 (allocationSize = 50, pooled-lo optimizer)
+DO $$
+DECLARE
+    t TEXT;
+    next_id BIGINT;
+BEGIN
+    FOREACH t IN ARRAY ARRAY['customers', 'costumes', 'rentals', 'bills'] LOOP
+        -- Start each sequence after the highest existing id
+        EXECUTE format('SELECT COALESCE(MAX(id), 0) + 1 FROM %I', t) INTO next_id;
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I START WITH %s INCREMENT BY 50', t || '_seq', next_id);
+        EXECUTE format('ALTER SEQUENCE %I RESTART WITH %s INCREMENT BY 50', t || '_seq', next_id);
+        -- Drop the identity so inserts outside the application also draw from the sequence
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', t);
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET DEFAULT nextval(%L)', t, t || '_seq');
+    END LOOP;
+END $$;
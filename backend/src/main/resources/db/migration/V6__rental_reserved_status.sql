@@ -0,0 +1,6 @@
+-- Future-dated rentals are RESERVED until OverdueSweepJob starts them
+ALTER TABLE rentals DROP CONSTRAINT IF EXISTS rentals_status_check;
+ALTER TABLE rentals ADD CONSTRAINT rentals_status_check
+    CHECK (status IN ('RESERVED', 'ACTIVE', 'RETURNED', 'OVERDUE', 'CANCELLED'));
+
+CREATE INDEX IF NOT EXISTS idx_rentals_reserved_rental_date ON rentals (rental_date) WHERE status = 'RESERVED';
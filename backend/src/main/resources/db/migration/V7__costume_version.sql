@@ -0,0 +1,2 @@
+-- Optimistic lock / ETag version, bumped by every costume update including stock reservations
+ALTER TABLE costumes ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,32 @@
+-- Secondary indexes for the status, date and customer filters in RentalRepository and BillRepository
+
+-- findByStatus, findOverdueRentals, markOverdueBatch and the sweep's newly-overdue lookup
+CREATE INDEX IF NOT EXISTS idx_rentals_status_expected_return ON rentals (status, expected_return_date);
+
+-- Keyset pages per status (findByStatusAndIdGreaterThan..., findByStatusInAndIdGreaterThan...)
+CREATE INDEX IF NOT EXISTS idx_rentals_status_id ON rentals (status, id);
+
+-- findByCustomerId and its keyset variant, and the rental side of BillRepository.findByCustomerId
+CREATE INDEX IF NOT EXISTS idx_rentals_customer_id ON rentals (customer_id, id);
+
+-- Stock reconciliation and the availability index load only look at rentals still holding a unit
+CREATE INDEX IF NOT EXISTS idx_rentals_costume_booked ON rentals (costume_id)
+    WHERE status IN ('RESERVED', 'ACTIVE', 'OVERDUE');
+
+-- findByRentalDateBetween and the rental export
+CREATE INDEX IF NOT EXISTS idx_rentals_rental_date ON rentals (rental_date);
+
+-- findByStatus, findOverdueBills and markOverdueBatch
+CREATE INDEX IF NOT EXISTS idx_bills_status_due_date ON bills (status, due_date);
+
+-- Keyset pages per status
+CREATE INDEX IF NOT EXISTS idx_bills_status_id ON bills (status, id);
+
+-- Only paid bills have a paid_date, so this serves findByPaidDateBetween and the PAID revenue sums alike
+CREATE INDEX IF NOT EXISTS idx_bills_paid_date ON bills (paid_date) WHERE paid_date IS NOT NULL;
+
+-- findByRentalId and the bill side of findByCustomerId
+CREATE INDEX IF NOT EXISTS idx_bills_rental_id ON bills (rental_id);
+
+-- findByBillDateBetween and the bill export
+CREATE INDEX IF NOT EXISTS idx_bills_bill_date ON bills (bill_date);
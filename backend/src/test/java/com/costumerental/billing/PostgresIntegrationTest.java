@@ -0,0 +1,46 @@
+package com.costumerental.billing;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Base class for tests that need the real schema: Flyway migrates a PostgreSQL 16 container started once per
+ * test run, or the empty database given with -Dtest.db.url=jdbc:postgresql://... (user and password as in
+ * application.properties). Without Docker or test.db.url the tests are skipped rather than failed.
+ */
+@SpringBootTest
+public abstract class PostgresIntegrationTest {
+    
+    private static final String EXTERNAL_URL = System.getProperty("test.db.url");
+    
+    private static PostgreSQLContainer<?> container;
+    
+    @BeforeAll
+    static void requireDatabase() {
+        assumeTrue(EXTERNAL_URL != null || DockerClientFactory.instance().isDockerAvailable(),
+                   "Needs Docker or -Dtest.db.url");
+    }
+    
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        if (EXTERNAL_URL != null) {
+            registry.add("spring.datasource.url", () -> EXTERNAL_URL);
+            return;
+        }
+        synchronized (PostgresIntegrationTest.class) {
+            if (container == null) {
+                container = new PostgreSQLContainer<>("postgres:16-alpine");
+                container.start();
+            }
+        }
+        registry.add("spring.datasource.url", () -> container.getJdbcUrl() + "&reWriteBatchedInserts=true");
+        registry.add("spring.datasource.username", container::getUsername);
+        registry.add("spring.datasource.password", container::getPassword);
+    }
+}
@@ -0,0 +1,136 @@
+package com.costumerental.billing.repository;
+
+import com.costumerental.billing.PostgresIntegrationTest;
+import com.costumerental.billing.config.StatementCountingInspector;
+import com.costumerental.billing.model.Bill;
+import com.costumerental.billing.model.Rental;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Guards the V8/V9 indexes: each hot-path repository method is called, and EXPLAIN of the SQL Hibernate sent for it,
+// with the same parameters and over a realistic spread of rows, must use its index
+class HotPathIndexTest extends PostgresIntegrationTest {
+    
+    // Far above anything the other tests allocate; everything is rolled back at the end
+    private static final long FIRST_ID = 2_000_000_000L;
+    
+    private static final int CUSTOMERS = 200;
+    
+    private static final int COSTUMES = 200;
+    
+    private static final int RENTALS = 100_000;
+    
+    private static final int PAGE = 50;
+    
+    private static final int BATCH = 1000;
+    
+    @Autowired
+    private RentalRepository rentalRepository;
+    
+    @Autowired
+    private BillRepository billRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Test
+    void hotPathQueriesUseTheirIndexes() {
+        LocalDate weekStart = LocalDate.of(2025, 3, 1);
+        LocalDate weekEnd = LocalDate.of(2025, 3, 8);
+        LocalDate weekLastDay = LocalDate.of(2025, 3, 7);
+        
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            createRows();
+            
+            // Overdue sweep
+            assertUsesIndex("idx_rentals_status_expected_return",
+                            () -> rentalRepository.markOverdueBatch(weekStart, weekEnd, BATCH),
+                            weekStart, weekEnd, BATCH);
+            assertUsesIndex("idx_bills_status_due_date",
+                            () -> billRepository.markOverdueBatch(weekStart.atStartOfDay(), weekEnd.atStartOfDay(), BATCH),
+                            weekStart.atStartOfDay(), weekEnd.atStartOfDay(), BATCH);
+            
+            // Cursor lists
+            assertUsesIndex("idx_rentals_status_id",
+                            () -> rentalRepository.findByStatusAndIdGreaterThanOrderByIdAsc(
+                                    Rental.RentalStatus.OVERDUE, FIRST_ID, PageRequest.of(0, PAGE)),
+                            Rental.RentalStatus.OVERDUE.name(), FIRST_ID, 0, PAGE);
+            assertUsesIndex("idx_rentals_customer_id",
+                            () -> rentalRepository.findByCustomerIdAndIdGreaterThanOrderByIdAsc(
+                                    FIRST_ID + 7, 0L, PageRequest.of(0, PAGE)),
+                            FIRST_ID + 7, 0L, 0, PAGE);
+            assertUsesIndex("idx_bills_status_id",
+                            () -> billRepository.findByStatusAndIdGreaterThanOrderByIdAsc(
+                                    Bill.BillStatus.OVERDUE, FIRST_ID, PageRequest.of(0, PAGE)),
+                            Bill.BillStatus.OVERDUE.name(), FIRST_ID, 0, PAGE);
+            
+            // Reports and bill lookup
+            assertUsesIndex("idx_rentals_rental_date",
+                            () -> rentalRepository.findByRentalDateBetween(weekStart, weekLastDay),
+                            weekStart, weekLastDay);
+            assertUsesIndex("idx_bills_paid_date",
+                            () -> billRepository.getTotalRevenueByDateRange(weekStart.atStartOfDay(), weekEnd.atStartOfDay()),
+                            weekStart.atStartOfDay(), weekEnd.atStartOfDay());
+            assertUsesIndex("idx_bills_bill_date",
+                            () -> billRepository.findByBillDateBetween(weekStart.atStartOfDay(), weekEnd.atStartOfDay()),
+                            weekStart.atStartOfDay(), weekEnd.atStartOfDay());
+            assertUsesIndex("uk_bills_rental_id",
+                            () -> billRepository.findByRentalId(FIRST_ID + 42),
+                            FIRST_ID + 42);
+            
+            status.setRollbackOnly();
+        });
+    }
+    
+    // Runs the repository call, which must send exactly one statement, and EXPLAINs that statement bound to the
+    // given parameters in placeholder order, so the planner sees the values the call used. Pageable queries end
+    // in "offset ? rows fetch first ? rows only", hence the 0 before each page size
+    private void assertUsesIndex(String index, Runnable call, Object... parameters) {
+        StatementCountingInspector.reset();
+        call.run();
+        String sql = StatementCountingInspector.lastStatement();
+        assertThat(StatementCountingInspector.current()).as(sql).isEqualTo(1);
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parameters);
+        assertThat(String.join("\n", plan)).as(sql).contains(index);
+    }
+    
+    // Three years of rentals, mostly returned, with one bill each; ANALYZE so the planner sees the spread
+    private void createRows() {
+        jdbcTemplate.update("INSERT INTO customers (id, first_name, email) " +
+                            "SELECT ? + n, 'Plan ' || n, 'plan-' || n || '@example.com' FROM generate_series(0, ?) n",
+                            FIRST_ID, CUSTOMERS - 1);
+        jdbcTemplate.update("INSERT INTO costumes (id, name, size, category, sell_price, original_price, available, stock_quantity) " +
+                            "SELECT ? + n, 'Plan costume ' || n, 'M', 'Plan', 20, 30, true, 100 FROM generate_series(0, ?) n",
+                            FIRST_ID, COSTUMES - 1);
+        jdbcTemplate.update("INSERT INTO rentals (id, customer_id, costume_id, rental_date, expected_return_date, status) " +
+                            "SELECT ? + n, ? + n % ?, ? + n % ?, DATE '2023-01-01' + n % 1095, DATE '2023-01-04' + n % 1095, " +
+                            "CASE WHEN n % 100 < 90 THEN 'RETURNED' WHEN n % 100 < 95 THEN 'ACTIVE' " +
+                            "WHEN n % 100 < 97 THEN 'OVERDUE' ELSE 'RESERVED' END FROM generate_series(0, ?) n",
+                            FIRST_ID, FIRST_ID, CUSTOMERS, FIRST_ID, COSTUMES, RENTALS - 1);
+        jdbcTemplate.update("INSERT INTO bills (id, rental_id, total_amount, bill_date, due_date, paid_date, status) " +
+                            "SELECT id, id, 60, rental_date, expected_return_date, " +
+                            "CASE WHEN status = 'RETURNED' THEN expected_return_date + TIME '12:00' END, " +
+                            "CASE WHEN status = 'RETURNED' THEN 'PAID' WHEN status = 'OVERDUE' THEN 'OVERDUE' ELSE 'PENDING' END " +
+                            "FROM rentals WHERE id >= ?",
+                            FIRST_ID);
+        // The entity-graph queries join customers and costumes too, so their statistics matter as well
+        jdbcTemplate.execute("ANALYZE customers");
+        jdbcTemplate.execute("ANALYZE costumes");
+        jdbcTemplate.execute("ANALYZE rentals");
+        jdbcTemplate.execute("ANALYZE bills");
+    }
+}
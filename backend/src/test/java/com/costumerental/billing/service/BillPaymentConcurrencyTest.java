@@ -0,0 +1,142 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.PostgresIntegrationTest;
+import com.costumerental.billing.model.Bill;
+import com.costumerental.billing.model.Costume;
+import com.costumerental.billing.model.Customer;
+import com.costumerental.billing.model.Rental;
+import com.costumerental.billing.repository.BillRepository;
+import com.costumerental.billing.repository.CostumeRepository;
+import com.costumerental.billing.repository.CustomerRepository;
+import com.costumerental.billing.repository.RentalRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Retried and concurrent payments of one bill must leave today's revenue bucket holding the bill exactly once
+class BillPaymentConcurrencyTest extends PostgresIntegrationTest {
+    
+    private static final int THREADS = 16;
+    
+    private static final BigDecimal TOTAL = new BigDecimal("60.00");
+    
+    @Autowired
+    private BillingService billingService;
+    
+    @Autowired
+    private BillRepository billRepository;
+    
+    @Autowired
+    private CustomerRepository customerRepository;
+    
+    @Autowired
+    private CostumeRepository costumeRepository;
+    
+    @Autowired
+    private RentalRepository rentalRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void doublePayCountsTheBillOnce() throws Exception {
+        Bill bill = pendingBill("Double pay");
+        Map<String, Object> before = todaysBucket();
+        
+        List<Callable<Void>> payments = new ArrayList<>();
+        for (int i = 0; i < THREADS * 2; i++) {
+            payments.add(() -> {
+                billingService.markBillAsPaid(bill.getId(), Bill.PaymentMethod.CASH);
+                return null;
+            });
+        }
+        run(payments);
+        
+        assertBucketHoldsBillOnce(bill.getId(), before);
+    }
+    
+    @Test
+    void feeChangesRacingPaymentsKeepTheBucketInStep() throws Exception {
+        Bill bill = pendingBill("Pay and fee");
+        Map<String, Object> before = todaysBucket();
+        
+        List<Callable<Void>> changes = new ArrayList<>();
+        for (int i = 0; i < THREADS * 2; i++) {
+            BigDecimal damageFee = BigDecimal.valueOf(i);
+            changes.add(i % 2 == 0
+                        ? () -> {
+                            billingService.markBillAsPaid(bill.getId(), Bill.PaymentMethod.CREDIT_CARD);
+                            return null;
+                        }
+                        : () -> {
+                            billingService.updateBillWithFees(bill.getId(), damageFee, BigDecimal.ZERO, "Race");
+                            return null;
+                        });
+        }
+        run(changes);
+        
+        assertBucketHoldsBillOnce(bill.getId(), before);
+    }
+    
+    private void assertBucketHoldsBillOnce(Long billId, Map<String, Object> before) {
+        Bill paid = billRepository.findById(billId).orElseThrow();
+        assertThat(paid.getStatus()).isEqualTo(Bill.BillStatus.PAID);
+        assertThat(paid.getPaidDate().toLocalDate()).isEqualTo(LocalDate.now());
+        
+        Map<String, Object> after = todaysBucket();
+        BigDecimal amount = ((BigDecimal) after.get("total_amount")).subtract((BigDecimal) before.get("total_amount"));
+        long count = ((Number) after.get("bill_count")).longValue() - ((Number) before.get("bill_count")).longValue();
+        assertThat(amount).isEqualByComparingTo(paid.getTotalAmount());
+        assertThat(count).isEqualTo(1);
+    }
+    
+    private Bill pendingBill(String name) {
+        Customer customer = customerRepository.save(new Customer(name, "pay-" + System.nanoTime() + "@example.com",
+                                                                 "555-0300", "3 Test St"));
+        Costume costume = costumeRepository.save(new Costume(name, "Payment concurrency test", "M", "Test",
+                                                             new BigDecimal("20.00"), new BigDecimal("30.00"), 1));
+        Rental rental = rentalRepository.save(new Rental(customer, costume, LocalDate.now(), LocalDate.now().plusDays(2)));
+        return billRepository.save(new Bill(rental, TOTAL));
+    }
+    
+    private Map<String, Object> todaysBucket() {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT total_amount, bill_count FROM daily_revenue WHERE revenue_date = CURRENT_DATE");
+        return rows.isEmpty() ? Map.of("total_amount", BigDecimal.ZERO, "bill_count", 0L) : rows.get(0);
+    }
+    
+    // Starts all calls together and waits for every one of them
+    private void run(List<Callable<Void>> calls) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (Callable<Void> call : calls) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return call.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
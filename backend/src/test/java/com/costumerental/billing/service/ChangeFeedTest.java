@@ -0,0 +1,85 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.dto.ChangeEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// A client that stops reading may hold up the other subscribers for at most the send timeout
+class ChangeFeedTest {
+    
+    private static final Duration SEND_TIMEOUT = Duration.ofMillis(200);
+    
+    @Test
+    void stalledSubscriberIsDroppedAndOthersKeepReceiving() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // A single sender thread, so the stalled write blocks every other subscriber until it is given up
+        ChangeFeed feed = new ChangeFeed(64, Duration.ofMinutes(30), 1, 100, SEND_TIMEOUT, 4, registry);
+        StalledEmitter stalled = new StalledEmitter();
+        RecordingEmitter healthy = new RecordingEmitter();
+        try {
+            feed.subscribe(stalled, null);
+            feed.changed(ChangeEvent.COSTUME, ChangeEvent.UPDATED, 1L);
+            assertThat(stalled.writing.await(5, TimeUnit.SECONDS)).isTrue();
+        
+            feed.subscribe(healthy, null);
+            feed.changed(ChangeEvent.COSTUME, ChangeEvent.UPDATED, 2L);
+            assertThat(healthy.sent.poll(SEND_TIMEOUT.toMillis() / 2, TimeUnit.MILLISECONDS)).isNull();
+        
+            Thread.sleep(SEND_TIMEOUT.toMillis() + 50);
+            feed.checkStalled();
+            assertThat(healthy.sent.poll(5, TimeUnit.SECONDS)).isNotNull();
+            assertThat(registry.get("rental.feed.subscribers").gauge().value()).isEqualTo(1);
+            assertThat(registry.get("rental.feed.stalled").counter().count()).isEqualTo(1);
+        
+            // Once the blocked write returns the dropped subscriber is closed and gets nothing more
+            stalled.release.countDown();
+            feed.changed(ChangeEvent.COSTUME, ChangeEvent.UPDATED, 3L);
+            assertThat(healthy.sent.poll(5, TimeUnit.SECONDS)).isNotNull();
+            assertThat(stalled.writes.get()).isEqualTo(1);
+        } finally {
+            stalled.release.countDown();
+            feed.shutdown();
+        }
+    }
+    
+    // Blocks in its first write until released, like a client whose TCP window is full
+    private static class StalledEmitter extends SseEmitter {
+        
+        private final CountDownLatch writing = new CountDownLatch(1);
+        
+        private final CountDownLatch release = new CountDownLatch(1);
+        
+        private final AtomicInteger writes = new AtomicInteger();
+        
+        @Override
+        public void send(SseEventBuilder builder) {
+            writes.incrementAndGet();
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private static class RecordingEmitter extends SseEmitter {
+        
+        private final BlockingQueue<SseEventBuilder> sent = new LinkedBlockingQueue<>();
+        
+        @Override
+        public void send(SseEventBuilder builder) {
+            sent.add(builder);
+        }
+    }
+}
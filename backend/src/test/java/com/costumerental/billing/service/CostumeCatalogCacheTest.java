@@ -0,0 +1,61 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.PostgresIntegrationTest;
+import com.costumerental.billing.config.StatementCountingInspector;
+import com.costumerental.billing.model.Costume;
+import com.costumerental.billing.repository.CostumeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// GET /costumes/{id} goes through findCostumeById on the proxy, so a repeated lookup must be served by the cache
+class CostumeCatalogCacheTest extends PostgresIntegrationTest {
+    
+    @Autowired
+    private CostumeCatalogService costumeCatalogService;
+    
+    @Autowired
+    private CostumeRepository costumeRepository;
+    
+    @Test
+    void secondLookupIssuesNoStatement() {
+        Costume costume = costumeRepository.save(new Costume("Cached costume", "Cache test", "M", "Test",
+                                                             new BigDecimal("20.00"), new BigDecimal("30.00"), 1));
+        
+        StatementCountingInspector.reset();
+        Optional<Costume> first = costumeCatalogService.findCostumeById(costume.getId());
+        assertThat(first).isPresent();
+        assertThat(StatementCountingInspector.current()).isEqualTo(1);
+        
+        StatementCountingInspector.reset();
+        Optional<Costume> second = costumeCatalogService.findCostumeById(costume.getId());
+        assertThat(second).map(Costume::getName).contains("Cached costume");
+        assertThat(StatementCountingInspector.current()).isZero();
+    }
+    
+    @Test
+    void missIsNotCached() {
+        Long missingId = Long.MAX_VALUE;
+        assertThat(costumeCatalogService.findCostumeById(missingId)).isEmpty();
+        
+        StatementCountingInspector.reset();
+        assertThat(costumeCatalogService.findCostumeById(missingId)).isEmpty();
+        assertThat(StatementCountingInspector.current()).isEqualTo(1);
+    }
+    
+    @Test
+    void saveEvictsTheCachedCostume() {
+        Costume costume = costumeRepository.save(new Costume("Before", "Cache test", "M", "Test",
+                                                             new BigDecimal("20.00"), new BigDecimal("30.00"), 1));
+        Costume cached = costumeCatalogService.findCostumeById(costume.getId()).orElseThrow();
+        
+        cached.setName("After");
+        costumeCatalogService.saveCostume(cached);
+        
+        assertThat(costumeCatalogService.findCostumeById(costume.getId())).map(Costume::getName).contains("After");
+    }
+}
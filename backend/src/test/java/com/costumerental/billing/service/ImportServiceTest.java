@@ -0,0 +1,48 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.PostgresIntegrationTest;
+import com.costumerental.billing.dto.ImportResult;
+import com.costumerental.billing.model.Customer;
+import com.costumerental.billing.repository.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// A chunk whose transaction rolls back must not leave its emails behind as duplicates for the rest of the file
+class ImportServiceTest extends PostgresIntegrationTest {
+    
+    @Autowired
+    private ImportService importService;
+    
+    @Autowired
+    private CustomerRepository customerRepository;
+    
+    @Test
+    void emailsOfAFailedChunkCanBeImportedLater() throws Exception {
+        String prefix = "import-" + System.nanoTime();
+        String reused = prefix + "-reused@example.com";
+        // Valid for @Email but longer than the 255 characters the email column holds, so the whole first chunk rolls back
+        String tooLong = "a".repeat(64) + "@" + "b".repeat(63) + "." + "c".repeat(63) + "." + "d".repeat(63) + ".com";
+        
+        StringBuilder csv = new StringBuilder("firstName,email,phone,address\n");
+        csv.append("Reused,").append(reused).append(",555-0500,5 Test St\n");
+        csv.append("Too long,").append(tooLong).append(",555-0500,5 Test St\n");
+        for (int i = 2; i < ImportService.CHUNK_SIZE; i++) {
+            csv.append("Filler ").append(i).append(',').append(prefix).append('-').append(i).append("@example.com,,\n");
+        }
+        csv.append("Reused again,").append(reused).append(",555-0501,5 Test St\n");
+        
+        ImportResult result = importService.importCustomers(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+        
+        assertThat(result.getTotalRows()).isEqualTo(ImportService.CHUNK_SIZE + 1);
+        assertThat(result.getFailed()).isEqualTo(ImportService.CHUNK_SIZE);
+        assertThat(result.getErrors()).allMatch(error -> error.getMessage().startsWith("Could not save row"));
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(customerRepository.findByEmail(reused)).map(Customer::getFirstName).contains("Reused again");
+    }
+}
@@ -0,0 +1,138 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.PostgresIntegrationTest;
+import com.costumerental.billing.config.StatementCountingInspector;
+import com.costumerental.billing.model.Bill;
+import com.costumerental.billing.model.Costume;
+import com.costumerental.billing.model.Customer;
+import com.costumerental.billing.model.Rental;
+import com.costumerental.billing.repository.BillRepository;
+import com.costumerental.billing.repository.CostumeRepository;
+import com.costumerental.billing.repository.CustomerRepository;
+import com.costumerental.billing.repository.RentalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Guards the entity graphs on RentalRepository and the lazy rental on Bill: a list read is one SELECT however many
+// customers, costumes and bills it spans
+class RentalListQueryCountTest extends PostgresIntegrationTest {
+    
+    private static final int RENTALS = 12;
+    
+    @Autowired
+    private RentalService rentalService;
+    
+    @Autowired
+    private BillingService billingService;
+    
+    @Autowired
+    private RentalRepository rentalRepository;
+    
+    @Autowired
+    private BillRepository billRepository;
+    
+    @Autowired
+    private CustomerRepository customerRepository;
+    
+    @Autowired
+    private CostumeRepository costumeRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private Customer firstCustomer;
+    
+    // Every other rental is overdue; each has a bill, pending or overdue to match
+    @BeforeEach
+    void createRentals() {
+        List<Rental> rentals = new ArrayList<>();
+        for (int i = 0; i < RENTALS; i++) {
+            Customer customer = customerRepository.save(new Customer("Count " + i, "count-" + System.nanoTime() + "@example.com",
+                                                                     "555-0100", "2 Test St"));
+            Costume costume = costumeRepository.save(new Costume("Count costume " + i, "Query count test", "M", "Test",
+                                                                 new BigDecimal("20.00"), new BigDecimal("30.00"), 1));
+            Rental rental = new Rental(customer, costume, LocalDate.now(), LocalDate.now().plusDays(3));
+            rental.setStatus(i % 2 == 0 ? Rental.RentalStatus.OVERDUE : Rental.RentalStatus.ACTIVE);
+            rentals.add(rental);
+            if (firstCustomer == null) {
+                firstCustomer = customer;
+            }
+        }
+        rentalRepository.saveAll(rentals);
+        
+        List<Bill> bills = new ArrayList<>();
+        for (Rental rental : rentals) {
+            Bill bill = new Bill(rental, new BigDecimal("60.00"));
+            bill.setDueDate(rental.getExpectedReturnDate().atStartOfDay());
+            if (rental.getStatus() == Rental.RentalStatus.OVERDUE) {
+                bill.setStatus(Bill.BillStatus.OVERDUE);
+            }
+            bills.add(bill);
+        }
+        billRepository.saveAll(bills);
+    }
+    
+    @Test
+    void listReadsIssueOneStatement() {
+        assertSingleStatement(() -> rentalService.getAllRentals());
+        assertSingleStatement(() -> rentalService.getActiveRentals());
+        assertSingleStatement(() -> rentalService.getOverdueRentals());
+        assertSingleStatement(() -> rentalService.getRentalsByCustomer(firstCustomer.getId()));
+        assertSingleStatement(() -> rentalService.getAllRentals(null, RENTALS).getItems());
+        assertSingleStatement(() -> rentalService.getActiveRentals(null, RENTALS).getItems());
+        assertSingleStatement(() -> rentalService.getOverdueRentals(null, RENTALS).getItems());
+        assertSingleStatement(() -> rentalService.getRentalsByCustomer(firstCustomer.getId(), null, RENTALS).getItems());
+    }
+    
+    @Test
+    void billListReadsIssueOneStatement() {
+        assertSingleBillStatement(() -> billingService.getAllBills());
+        assertSingleBillStatement(() -> billingService.getPendingBills());
+        assertSingleBillStatement(() -> billingService.getOverdueBills());
+        assertSingleBillStatement(() -> billingService.getBillsByCustomer(firstCustomer.getId()));
+        assertSingleBillStatement(() -> billingService.getAllBills(null, RENTALS).getItems());
+        assertSingleBillStatement(() -> billingService.getPendingBills(null, RENTALS).getItems());
+        assertSingleBillStatement(() -> billingService.getOverdueBills(null, RENTALS).getItems());
+        assertSingleBillStatement(() -> billingService.getBillsByCustomer(firstCustomer.getId(), null, RENTALS).getItems());
+    }
+    
+    // Reads the associations the JSON view serializes
+    private void assertSingleStatement(Supplier<Collection<Rental>> read) {
+        assertSingleStatement(read, rental -> {
+            rental.getCustomer().getFirstName();
+            rental.getCostume().getName();
+        });
+    }
+    
+    // Bill serializes no association (its rental is @JsonIgnore), so only its own columns are read
+    private void assertSingleBillStatement(Supplier<Collection<Bill>> read) {
+        assertSingleStatement(read, Bill::getTotalAmount);
+    }
+    
+    // Runs the read and the touches inside one read-only transaction, like a request would
+    private <T> void assertSingleStatement(Supplier<Collection<T>> read, Consumer<T> touch) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        int statements = transactionTemplate.execute(status -> {
+            StatementCountingInspector.reset();
+            Collection<T> rows = read.get();
+            assertThat(rows).isNotEmpty();
+            rows.forEach(touch);
+            return StatementCountingInspector.current();
+        });
+        assertThat(statements).isEqualTo(1);
+    }
+}
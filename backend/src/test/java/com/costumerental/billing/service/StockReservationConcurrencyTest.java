@@ -0,0 +1,171 @@
+package com.costumerental.billing.service;
+
+import com.costumerental.billing.PostgresIntegrationTest;
+import com.costumerental.billing.model.Costume;
+import com.costumerental.billing.model.Customer;
+import com.costumerental.billing.model.Rental;
+import com.costumerental.billing.repository.CostumeRepository;
+import com.costumerental.billing.repository.CustomerRepository;
+import com.costumerental.billing.repository.RentalRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Many counters booking the last units of one costume at once must never oversell it
+class StockReservationConcurrencyTest extends PostgresIntegrationTest {
+    
+    private static final int THREADS = 32;
+    
+    private static final int STOCK = 5;
+    
+    @Autowired
+    private CostumeRepository costumeRepository;
+    
+    @Autowired
+    private CustomerRepository customerRepository;
+    
+    @Autowired
+    private RentalRepository rentalRepository;
+    
+    @Autowired
+    private RentalService rentalService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Test
+    void reserveUnitsNeverOversells() throws Exception {
+        Costume costume = costumeRepository.save(costume("Reserve race", STOCK));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        
+        List<Callable<Boolean>> bookings = new ArrayList<>();
+        for (int i = 0; i < THREADS * 4; i++) {
+            bookings.add(() -> transactionTemplate.execute(status -> costumeRepository.reserveUnits(costume.getId(), 1) == 1));
+        }
+        int booked = runWhileSampling(costume.getId(), bookings);
+        
+        assertThat(booked).isEqualTo(STOCK);
+        assertThat(activeRentalCount(costume.getId())).isEqualTo(STOCK);
+        assertThat(costumeRepository.findById(costume.getId()).orElseThrow().getAvailable()).isFalse();
+    }
+    
+    @Test
+    void createRentalNeverOversells() throws Exception {
+        Costume costume = costumeRepository.save(costume("Checkout race", STOCK));
+        Customer customer = customerRepository.save(new Customer("Race", "race-" + System.nanoTime() + "@example.com",
+                                                                 "555-0000", "1 Test St"));
+        LocalDate today = LocalDate.now();
+        
+        List<Callable<Boolean>> bookings = new ArrayList<>();
+        for (int i = 0; i < THREADS * 4; i++) {
+            bookings.add(() -> {
+                try {
+                    rentalService.createRental(customer.getId(), costume.getId(), today, today.plusDays(2), null, false);
+                    return true;
+                } catch (DomainException e) {
+                    return false;
+                }
+            });
+        }
+        int booked = runWhileSampling(costume.getId(), bookings);
+        
+        assertThat(booked).isEqualTo(STOCK);
+        assertThat(activeRentalCount(costume.getId())).isEqualTo(STOCK);
+        assertThat(rentalRepository.findByCostumeId(costume.getId()))
+                .hasSize(STOCK)
+                .allMatch(rental -> rental.getStatus() == Rental.RentalStatus.ACTIVE);
+    }
+    
+    // Single-row contention ceiling: every booking of one costume serializes on its row lock
+    @Test
+    void reportsBookingsPerSecond() throws Exception {
+        int perThread = 50;
+        Costume costume = costumeRepository.save(costume("Throughput", THREADS * perThread));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        
+        List<Callable<Boolean>> bookings = new ArrayList<>();
+        for (int i = 0; i < THREADS * perThread; i++) {
+            bookings.add(() -> transactionTemplate.execute(status -> costumeRepository.reserveUnits(costume.getId(), 1) == 1));
+        }
+        long start = System.nanoTime();
+        int booked = run(bookings);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        
+        System.out.printf("reserveUnits on one costume: %d bookings in %.2f s = %.0f bookings/sec (%d threads)%n",
+                          booked, seconds, booked / seconds, THREADS);
+        assertThat(booked).isEqualTo(THREADS * perThread);
+        assertThat(activeRentalCount(costume.getId())).isEqualTo(THREADS * perThread);
+    }
+    
+    // Runs the bookings while another thread keeps checking that the counter never exceeds the stock
+    private int runWhileSampling(Long costumeId, List<Callable<Boolean>> bookings) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger maxSeen = new AtomicInteger();
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                maxSeen.accumulateAndGet(activeRentalCount(costumeId), Math::max);
+            }
+        });
+        sampler.start();
+        try {
+            return run(bookings);
+        } finally {
+            running.set(false);
+            sampler.join();
+            assertThat(maxSeen.get()).isLessThanOrEqualTo(STOCK);
+        }
+    }
+    
+    // Starts all bookings together and returns how many succeeded
+    private int run(List<Callable<Boolean>> bookings) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (Callable<Boolean> booking : bookings) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return booking.call();
+                }));
+            }
+            start.countDown();
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(60, TimeUnit.SECONDS)) {
+                    succeeded++;
+                }
+            }
+            return succeeded;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    private int activeRentalCount(Long costumeId) {
+        return jdbcTemplate.queryForObject("SELECT active_rental_count FROM costumes WHERE id = ?", Integer.class, costumeId);
+    }
+    
+    private static Costume costume(String name, int stock) {
+        return new Costume(name, "Concurrency test", "M", "Test", new BigDecimal("20.00"), new BigDecimal("30.00"), stock);
+    }
+}
@@ -1,4 +1,4 @@
-import { Component, OnInit, ChangeDetectorRef, ViewChild, TemplateRef } from '@angular/core';
+import { Component, OnInit, OnDestroy, ChangeDetectorRef, ViewChild, TemplateRef } from '@angular/core';
 import { CommonModule } from '@angular/common';
 import { ReactiveFormsModule, FormBuilder, FormGroup, Validators, FormControl } from '@angular/forms';
 import { MatCardModule } from '@angular/material/card';
@@ -19,17 +19,19 @@ import { MatTableDataSource } from '@angular/material/table';
 import { MatDialog, MatDialogModule } from '@angular/material/dialog';
 import { MatDividerModule } from '@angular/material/divider';
 import { MatCheckboxModule } from '@angular/material/checkbox';
-import { debounceTime, distinctUntilChanged, switchMap } from 'rxjs/operators';
-import { of } from 'rxjs';
+import { debounceTime, distinctUntilChanged, filter, switchMap } from 'rxjs/operators';
+import { of, Subscription } from 'rxjs';
 
 import { RentalService } from '../../services/rental.service';
 import { CustomerService } from '../../services/customer.service';
 import { CostumeService } from '../../services/costume.service';
 import { BillService } from '../../services/bill.service';
+import { ChangeFeedService } from '../../services/change-feed.service';
 import { Rental, RentalStatus, CreateRentalRequest } from '../../models/rental.model';
 import { Customer } from '../../models/customer.model';
 import { Costume } from '../../models/costume.model';
 import { Bill } from '../../models/bill.model';
+import { ChangeEvent } from '../../models/change-event.model';
 
 interface SelectedCostumeItem {
   costume: Costume;
@@ -574,14 +576,14 @@ interface CustomerRentalGroup {
               <th mat-header-cell *matHeaderCellDef>Actions</th>
               <td mat-cell *matCellDef="let rental">
                 <button mat-icon-button 
-                        *ngIf="rental.status === 'ACTIVE'" 
+                        *ngIf="rental.status === 'ACTIVE' || rental.status === 'OVERDUE'" 
                         (click)="returnCostume(rental)"
                         matTooltip="Return Costume"
                         color="primary">
                   <mat-icon>assignment_return</mat-icon>
                 </button>
                 <button mat-icon-button 
-                        *ngIf="rental.status === 'ACTIVE'" 
+                        *ngIf="rental.status === 'RESERVED' || rental.status === 'ACTIVE' || rental.status === 'OVERDUE'" 
                         (click)="cancelRental(rental)"
                         matTooltip="Cancel Rental"
                         color="warn">
@@ -861,14 +863,14 @@ interface CustomerRentalGroup {
             Close
           </button>
           <button mat-raised-button color="primary" 
-                  *ngIf="data.rental.status === 'ACTIVE'" 
+                  *ngIf="data.rental.status === 'ACTIVE' || data.rental.status === 'OVERDUE'" 
                   (click)="returnCostumeFromDialog(data.rental)"
                   class="action-btn">
             <mat-icon>assignment_return</mat-icon>
             Return Costume
           </button>
           <button mat-raised-button color="warn" 
-                  *ngIf="data.rental.status === 'ACTIVE'" 
+                  *ngIf="data.rental.status === 'RESERVED' || data.rental.status === 'ACTIVE' || data.rental.status === 'OVERDUE'" 
                   (click)="cancelRentalFromDialog(data.rental)"
                   class="action-btn">
             <mat-icon>cancel</mat-icon>
@@ -2682,7 +2684,7 @@ interface CustomerRentalGroup {
     }
   `]
 })
-export class RentalsComponent implements OnInit {
+export class RentalsComponent implements OnInit, OnDestroy {
   @ViewChild('rentalDetailsDialog') rentalDetailsDialog!: TemplateRef<any>;
   @ViewChild('customerRentalsDialog') customerRentalsDialog!: TemplateRef<any>;
   
@@ -2730,11 +2732,15 @@ export class RentalsComponent implements OnInit {
   returningAll = false;
   returningCustomerRentals: number | null = null;
 
+  // Server-pushed changes replace re-polling the rental and costume lists
+  private changesSubscription?: Subscription;
+
   constructor(
     private rentalService: RentalService,
     private customerService: CustomerService,
     private costumeService: CostumeService,
     private billService: BillService,
+    private changeFeedService: ChangeFeedService,
     private fb: FormBuilder,
     private snackBar: MatSnackBar,
     private cdr: ChangeDetectorRef,
@@ -2763,6 +2769,50 @@ export class RentalsComponent implements OnInit {
     console.log('Form errors:', this.rentalForm.errors);
     this.loadData();
     this.setupSearchFunctionality();
+    this.subscribeToChanges();
+  }
+
+  ngOnDestroy() {
+    this.changesSubscription?.unsubscribe();
+  }
+
+  // Stock deltas are patched in place; rental changes and bulk refreshes trigger one debounced reload
+  subscribeToChanges() {
+    const changes$ = this.changeFeedService.changes$;
+    this.changesSubscription = changes$
+      .pipe(filter(change => change.entity === 'costume' && change.action === 'stock'))
+      .subscribe(change => this.applyStockChange(change));
+    this.changesSubscription.add(changes$
+      .pipe(
+        filter(change => change.entity === 'reset' || change.entity === 'rental'),
+        debounceTime(500)
+      )
+      .subscribe(() => this.loadRentals()));
+    this.changesSubscription.add(changes$
+      .pipe(
+        filter(change => change.entity === 'reset' ||
+          (change.entity === 'costume' && change.action !== 'stock')),
+        debounceTime(500)
+      )
+      .subscribe(() => this.loadAvailableCostumes()));
+  }
+
+  applyStockChange(change: ChangeEvent) {
+    const costume = this.availableCostumes.find(c => c.id === change.id);
+    if (!costume) {
+      // A costume coming back into stock is not in the available list yet
+      if (change.available) {
+        this.loadAvailableCostumes();
+      }
+      return;
+    }
+    costume.availableStock = change.availableStock;
+    costume.available = change.available;
+    if (!change.available) {
+      this.availableCostumes = this.availableCostumes.filter(c => c.id !== change.id);
+      this.filteredCostumes = this.filteredCostumes.filter(c => c.id !== change.id);
+    }
+    this.cdr.markForCheck();
   }
 
   loadData() {
@@ -2833,7 +2883,7 @@ export class RentalsComponent implements OnInit {
         // Show ALL active rentals (including overdue ones)
         this.filteredRentals = this.rentals.filter(r => {
           console.log(`Checking rental ${r.id}: status = "${r.status}"`);
-          return r.status === 'ACTIVE';
+          return r.status === 'ACTIVE' || r.status === 'OVERDUE';
         });
         break;
       case 'overdue':
@@ -4455,7 +4505,7 @@ export class RentalsComponent implements OnInit {
 
   // Helper methods to get counts for filter buttons
   getActiveCount(): number {
-    return this.rentals.filter(r => r.status === 'ACTIVE').length;
+    return this.rentals.filter(r => r.status === 'ACTIVE' || r.status === 'OVERDUE').length;
   }
 
   getOverdueCount(): number {
@@ -4489,6 +4539,7 @@ export class RentalsComponent implements OnInit {
   }
 
   isRentalOverdue(rental: Rental): boolean {
+    if (rental.status === 'OVERDUE') return true;
     if (rental.status !== 'ACTIVE') return false;
     const today = new Date();
     const expectedReturn = new Date(rental.expectedReturnDate);
@@ -0,0 +1,15 @@
+export type ChangeEntity = 'costume' | 'rental' | 'customer';
+
+export type ChangeAction = 'created' | 'updated' | 'deleted' | 'stock' | 'status' | 'refresh';
+
+// One entry of GET /changes; a 'reset' entry means events were missed and lists should be reloaded
+export interface ChangeEvent {
+  entity: ChangeEntity | 'reset';
+  action: ChangeAction | 'reset';
+  id?: number;
+  availableStock?: number;
+  available?: boolean;
+  status?: string;
+  costumeId?: number;
+  customerId?: number;
+}
@@ -0,0 +1,30 @@
+import { Customer } from './customer.model';
+import { RentalStatus } from './rental.model';
+import { BillStatus } from './bill.model';
+
+// GET /customers/{id}/summary: the counts cover every rental, the two lists are capped by the server
+export interface CustomerSummary {
+  customer: Customer;
+  rentalCount: number;
+  openRentalCount: number;
+  overdueCount: number;
+  unpaidBills: number;
+  accruedLateFees: number;
+  outstandingBalance: number;
+  activeRentals: CustomerRentalLine[];
+  recentRentals: CustomerRentalLine[];
+}
+
+export interface CustomerRentalLine {
+  rentalId: number;
+  costumeId: number;
+  costumeName: string;
+  rentalDate: string;
+  expectedReturnDate: string;
+  actualReturnDate?: string;
+  status: RentalStatus;
+  accruedLateFee?: number;
+  billId?: number;
+  billTotal?: number;
+  billStatus?: BillStatus;
+}
@@ -14,6 +14,7 @@ export interface Rental {
 }
 
 export enum RentalStatus {
+  RESERVED = 'RESERVED',
   ACTIVE = 'ACTIVE',
   RETURNED = 'RETURNED',
   OVERDUE = 'OVERDUE',
@@ -2,6 +2,7 @@ import { Injectable } from '@angular/core';
 import { HttpClient, HttpParams } from '@angular/common/http';
 import { Observable } from 'rxjs';
 import { Bill, UpdateBillFeesRequest, PayBillRequest, PaymentMethod } from '../models/bill.model';
+import { idempotencyHeaders, retryOnNetworkError } from './idempotency';
 
 @Injectable({
   providedIn: 'root'
@@ -59,7 +60,8 @@ export class BillService {
     const params = new HttpParams()
       .set('paymentMethod', paymentMethod);
 
-    return this.http.put<Bill>(`${this.apiUrl}/${billId}/pay`, null, { params });
+    return this.http.put<Bill>(`${this.apiUrl}/${billId}/pay`, null, { params, headers: idempotencyHeaders() })
+      .pipe(retryOnNetworkError());
   }
 
   generateBill(rentalId: number): Observable<Bill> {
@@ -0,0 +1,32 @@
+import { Injectable } from '@angular/core';
+import { Observable, share } from 'rxjs';
+import { ChangeEvent } from '../models/change-event.model';
+
+const RESET: ChangeEvent = { entity: 'reset', action: 'reset' };
+
+@Injectable({
+  providedIn: 'root'
+})
+export class ChangeFeedService {
+  private apiUrl = 'http://localhost:8080/api/changes';
+
+  // Id of the last event seen; a later connection resumes from it instead of reloading everything
+  private lastEventId: string | null = null;
+
+  // One EventSource shared by all subscribers, closed when the last one unsubscribes.
+  // EventSource reconnects on its own and sends Last-Event-ID, so dropped connections lose nothing
+  readonly changes$: Observable<ChangeEvent> = new Observable<ChangeEvent>(subscriber => {
+    const url = this.lastEventId ? `${this.apiUrl}?since=${encodeURIComponent(this.lastEventId)}` : this.apiUrl;
+    const source = new EventSource(url);
+    source.addEventListener('change', event => {
+      const message = event as MessageEvent<string>;
+      this.lastEventId = message.lastEventId;
+      subscriber.next(JSON.parse(message.data));
+    });
+    source.addEventListener('reset', event => {
+      this.lastEventId = (event as MessageEvent<string>).lastEventId;
+      subscriber.next(RESET);
+    });
+    return () => source.close();
+  }).pipe(share());
+}
@@ -2,6 +2,7 @@ import { Injectable } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
 import { Observable } from 'rxjs';
 import { Customer } from '../models/customer.model';
+import { CustomerSummary } from '../models/customer-summary.model';
 
 @Injectable({
   providedIn: 'root'
@@ -19,6 +20,11 @@ export class CustomerService {
     return this.http.get<Customer>(`${this.apiUrl}/${id}`);
   }
 
+  // Profile, open rentals, recent history and balance in one request
+  getCustomerSummary(id: number, history: number = 10): Observable<CustomerSummary> {
+    return this.http.get<CustomerSummary>(`${this.apiUrl}/${id}/summary?history=${history}`);
+  }
+
   createCustomer(customer: Customer): Observable<Customer> {
     return this.http.post<Customer>(this.apiUrl, customer);
   }
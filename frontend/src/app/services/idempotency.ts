@@ -0,0 +1,21 @@
+import { HttpErrorResponse, HttpHeaders } from '@angular/common/http';
+import { MonoTypeOperatorFunction, retry, throwError, timer } from 'rxjs';
+
+export const IDEMPOTENCY_HEADER = 'Idempotency-Key';
+
+// crypto.randomUUID is only available in secure contexts, so fall back for tablets on plain http
+export function idempotencyHeaders(): HttpHeaders {
+  const key = typeof crypto !== 'undefined' && typeof crypto.randomUUID === 'function'
+    ? crypto.randomUUID()
+    : Date.now().toString(36) + '-' + Math.random().toString(36).slice(2);
+  return new HttpHeaders().set(IDEMPOTENCY_HEADER, key);
+}
+
+// Retries only requests that never got a response; the server replays the first result for the same key
+export function retryOnNetworkError<T>(count: number = 3): MonoTypeOperatorFunction<T> {
+  return retry({
+    count,
+    delay: (error: HttpErrorResponse, retryCount: number) =>
+      error.status === 0 ? timer(500 * retryCount) : throwError(() => error)
+  });
+}
@@ -0,0 +1,25 @@
+import { HttpInterceptorFn, HttpResponse } from '@angular/common/http';
+import { tap } from 'rxjs';
+
+export const READ_PRIMARY_UNTIL_HEADER = 'X-Read-Primary-Until';
+
+// Deadline handed out by the backend after our last write; echoing it keeps our reads on the primary
+// database until the replica has caught up with that write. The server compares it against its own
+// clock and ignores it once expired, so client clock skew does not matter
+let readPrimaryUntil = 0;
+
+export const readYourWritesInterceptor: HttpInterceptorFn = (req, next) => {
+  const outgoing = readPrimaryUntil > 0
+    ? req.clone({ setHeaders: { [READ_PRIMARY_UNTIL_HEADER]: readPrimaryUntil.toString() } })
+    : req;
+  return next(outgoing).pipe(
+    tap(event => {
+      if (event instanceof HttpResponse) {
+        const until = Number(event.headers.get(READ_PRIMARY_UNTIL_HEADER));
+        if (until > readPrimaryUntil) {
+          readPrimaryUntil = until;
+        }
+      }
+    })
+  );
+};
@@ -2,6 +2,7 @@ import { Injectable } from '@angular/core';
 import { HttpClient, HttpParams } from '@angular/common/http';
 import { Observable } from 'rxjs';
 import { Rental, CreateRentalRequest, ReturnCostumeRequest } from '../models/rental.model';
+import { idempotencyHeaders, retryOnNetworkError } from './idempotency';
 
 @Injectable({
   providedIn: 'root'
@@ -40,7 +41,8 @@ export class RentalService {
       .set('notes', request.notes || '')
       .set('generateBill', generateBill.toString());
 
-    return this.http.post<Rental>(this.apiUrl, null, { params });
+    return this.http.post<Rental>(this.apiUrl, null, { params, headers: idempotencyHeaders() })
+      .pipe(retryOnNetworkError());
   }
 
   returnCostume(rentalId: number, request: ReturnCostumeRequest): Observable<Rental> {